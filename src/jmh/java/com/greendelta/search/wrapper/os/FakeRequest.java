@@ -0,0 +1,122 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.opensearch.index.query.QueryBuilder;
+import org.opensearch.search.aggregations.AggregationBuilder;
+import org.opensearch.search.sort.SortOrder;
+
+import com.greendelta.search.wrapper.os.Search.OsRequest;
+import com.greendelta.search.wrapper.os.Search.OsResponse;
+
+// answers every search with the same canned response, so benchmarks only
+// measure the client side work of building requests and mapping results
+class FakeRequest implements OsRequest {
+
+	private final OsResponse response;
+
+	FakeRequest(OsResponse response) {
+		this.response = response;
+	}
+
+	@Override
+	public void setFrom(int from) {
+	}
+
+	@Override
+	public void setSize(int size) {
+	}
+
+	@Override
+	public void addSort(String field, SortOrder order) {
+	}
+
+	@Override
+	public void addAggregation(AggregationBuilder aggregation) {
+	}
+
+	@Override
+	public void setQuery(QueryBuilder query) {
+	}
+
+	@Override
+	public void addField(String field) {
+	}
+
+	@Override
+	public void addDocValueField(String field) {
+	}
+
+	@Override
+	public void addStoredField(String field) {
+	}
+
+	@Override
+	public void setFetchSource(boolean fetch) {
+	}
+
+	@Override
+	public void setFetchSource(String[] includes, String[] excludes) {
+	}
+
+	@Override
+	public void setTrackTotalHits(boolean track) {
+	}
+
+	@Override
+	public void setRouting(String routing) {
+	}
+
+	@Override
+	public void setSearchAfter(Object[] values) {
+	}
+
+	@Override
+	public void openPointInTime() {
+	}
+
+	@Override
+	public void closePointInTime() {
+	}
+
+	@Override
+	public String dateFormat(String field) {
+		return null;
+	}
+
+	@Override
+	public OsRequest copy() {
+		return this;
+	}
+
+	@Override
+	public OsRequest slice(int id, int max) {
+		return this;
+	}
+
+	@Override
+	public OsResponse execute() {
+		return response;
+	}
+
+	@Override
+	public CompletableFuture<Void> openPointInTimeAsync() {
+		return Futures.done();
+	}
+
+	@Override
+	public CompletableFuture<Void> closePointInTimeAsync() {
+		return Futures.done();
+	}
+
+	@Override
+	public CompletableFuture<String> dateFormatAsync(String field) {
+		return CompletableFuture.completedFuture(null);
+	}
+
+	@Override
+	public CompletableFuture<OsResponse> executeAsync() {
+		return CompletableFuture.completedFuture(response);
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opensearch.search.SearchHit;
+import org.opensearch.search.aggregations.Aggregation;
+import org.opensearch.search.aggregations.bucket.range.Range;
+import org.opensearch.search.aggregations.bucket.terms.Terms;
+import org.opensearch.search.aggregations.bucket.terms.Terms.Bucket;
+
+import com.greendelta.search.wrapper.os.Search.OsResponse;
+
+class FakeResponse implements OsResponse {
+
+	private final SearchHit[] hits;
+	private final List<Aggregation> aggregations;
+
+	FakeResponse(SearchHit[] hits, List<Aggregation> aggregations) {
+		this.hits = hits;
+		this.aggregations = aggregations;
+	}
+
+	@Override
+	public SearchHit[] getHits() {
+		return hits;
+	}
+
+	@Override
+	public long getTotalHits() {
+		return hits.length;
+	}
+
+	@Override
+	public List<Aggregation> getAggregations() {
+		return aggregations;
+	}
+
+	@Override
+	public List<? extends Bucket> getTermBuckets(Aggregation aggregation) {
+		if (aggregation instanceof Terms terms)
+			return terms.getBuckets();
+		return new ArrayList<>();
+	}
+
+	@Override
+	public List<? extends Range.Bucket> getRangeBuckets(Aggregation aggregation) {
+		if (aggregation instanceof Range range)
+			return range.getBuckets();
+		return new ArrayList<>();
+	}
+
+}
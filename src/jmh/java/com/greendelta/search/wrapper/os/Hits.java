@@ -0,0 +1,79 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.common.document.DocumentField;
+import org.opensearch.core.common.bytes.BytesArray;
+import org.opensearch.search.DocValueFormat;
+import org.opensearch.search.SearchHit;
+import org.opensearch.search.aggregations.Aggregation;
+import org.opensearch.search.aggregations.BucketOrder;
+import org.opensearch.search.aggregations.InternalAggregations;
+import org.opensearch.search.aggregations.bucket.terms.StringTerms;
+import org.opensearch.search.aggregations.bucket.terms.TermsAggregator.BucketCountThresholds;
+
+// canned hits and aggregations in the shape of the queries in Queries
+class Hits {
+
+	static final int COUNT = 100;
+
+	static SearchHit[] fields() {
+		var hits = new SearchHit[COUNT];
+		for (var i = 0; i < COUNT; i++) {
+			var fields = new HashMap<String, DocumentField>();
+			put(fields, "name", "Electricity, high voltage, production mix " + i);
+			put(fields, "category", "Energy/Electricity");
+			put(fields, "process.location", "DE");
+			put(fields, "process.version", "01.00." + i);
+			put(fields, "exchanges.flow", "carbon dioxide", "methane", "nitrous oxide", "sulfur dioxide");
+			put(fields, "exchanges.amount", 0.52, 0.0013, 0.00002, 0.0004);
+			hits[i] = new SearchHit(i, "id-" + i, fields, new HashMap<>());
+		}
+		return hits;
+	}
+
+	static SearchHit[] sources() {
+		var hits = new SearchHit[COUNT];
+		for (var i = 0; i < COUNT; i++) {
+			var json = new StringBuilder("{\"name\":\"Electricity, high voltage, production mix " + i + "\","
+					+ "\"category\":\"Energy/Electricity\",\"process\":{\"location\":\"DE\",\"version\":\"01.00."
+					+ i + "\"},\"exchanges\":[");
+			for (var j = 0; j < 50; j++) {
+				if (j > 0) {
+					json.append(',');
+				}
+				json.append("{\"flow\":\"flow ").append(j).append("\",\"amount\":").append(j * 0.001)
+						.append(",\"unit\":\"kg\",\"input\":").append(j % 2 == 0).append('}');
+			}
+			json.append("]}");
+			hits[i] = new SearchHit(i, "id-" + i, new HashMap<>(), new HashMap<>());
+			hits[i].sourceRef(new BytesArray(json.toString()));
+		}
+		return hits;
+	}
+
+	static List<Aggregation> aggregations() {
+		var aggregations = new ArrayList<Aggregation>();
+		aggregations.add(terms("type", 5));
+		aggregations.add(terms("location", 200));
+		return aggregations;
+	}
+
+	private static StringTerms terms(String name, int buckets) {
+		var list = new ArrayList<StringTerms.Bucket>();
+		for (var i = 0; i < buckets; i++) {
+			list.add(new StringTerms.Bucket(new BytesRef(name + "-" + i), 1000 - i, InternalAggregations.EMPTY,
+					false, 0, DocValueFormat.RAW));
+		}
+		return new StringTerms(name, BucketOrder.count(false), BucketOrder.count(false), null, DocValueFormat.RAW,
+				buckets, false, 0, list, 0, new BucketCountThresholds(1, 0, buckets, buckets));
+	}
+
+	private static void put(HashMap<String, DocumentField> fields, String name, Object... values) {
+		fields.put(name, new DocumentField(name, List.of(values)));
+	}
+
+}
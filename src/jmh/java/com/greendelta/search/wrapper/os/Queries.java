@@ -0,0 +1,76 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.Set;
+
+import com.greendelta.search.wrapper.SearchFilterValue;
+import com.greendelta.search.wrapper.SearchQuery;
+import com.greendelta.search.wrapper.SearchQueryBuilder;
+import com.greendelta.search.wrapper.aggregations.TermsAggregation;
+import com.greendelta.search.wrapper.score.Comparator;
+import com.greendelta.search.wrapper.score.Condition;
+import com.greendelta.search.wrapper.score.Field;
+import com.greendelta.search.wrapper.score.Score;
+
+// query shapes as they are sent by the repository search of the
+// collaboration server: type and facet filters, nested exchanges, free
+// text over several fields and a version score
+class Queries {
+
+	static SearchQuery nested() {
+		return new SearchQueryBuilder()
+				.filter("type", SearchFilterValue.term("PROCESS"))
+				.filter("category", SearchFilterValue.term("Energy/Electricity"))
+				.filter("exchanges.flow.name", SearchFilterValue.term("carbon dioxide"))
+				.filter("exchanges.flow.category", SearchFilterValue.wildcard("Emission*"))
+				.filter("exchanges.amount", SearchFilterValue.range(0.5, 100))
+				.aggregation(new TermsAggregation("category", "category"))
+				.build();
+	}
+
+	static SearchQuery multiFilter() {
+		return new SearchQueryBuilder()
+				.filter("type", SearchFilterValue.term("PROCESS"))
+				.filter(Set.of("name", "description", "category"), SearchFilterValue.phrase("electricity mix"))
+				.filter(Set.of("name", "tags"), SearchFilterValue.wildcard("hydro*"))
+				.aggregation(new TermsAggregation("type", "type"))
+				.aggregation(new TermsAggregation("location", "location"))
+				.build();
+	}
+
+	static SearchQuery scored() {
+		return new SearchQueryBuilder()
+				.filter("type", SearchFilterValue.term("PROCESS"))
+				.filter("name", SearchFilterValue.phrase("electricity"))
+				.score(score())
+				.build();
+	}
+
+	static Score score() {
+		var score = new Score(new Field("year", 2020, 1990, 2030), new Field("version", 3));
+		score.addCase(4, new Condition("year", Comparator.EQUALS, 2020));
+		score.addCase(2, new Condition("year", Comparator.IS_GREATER_OR_EQUAL_THAN, 2015),
+				new Condition("version", Comparator.IS_GREATER_THAN, 1));
+		score.setDefaultWeight(1);
+		return score;
+	}
+
+	static SearchQuery fields() {
+		return new SearchQueryBuilder()
+				.pageSize(Hits.COUNT)
+				.field("name")
+				.field("category")
+				.field("process.location")
+				.field("process.version")
+				.field("exchanges.flow", true)
+				.field("exchanges.amount", true)
+				.build();
+	}
+
+	static SearchQuery fullResult() {
+		return new SearchQueryBuilder()
+				.pageSize(Hits.COUNT)
+				.fullResult()
+				.build();
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.concurrent.TimeUnit;
+
+import org.opensearch.index.query.QueryBuilder;
+import org.opensearch.search.aggregations.AggregationBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.greendelta.search.wrapper.SearchQuery;
+import com.greendelta.search.wrapper.score.Score;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+	private SearchQuery nested;
+	private SearchQuery multiFilter;
+	private SearchQuery scored;
+	private Score score;
+
+	@Setup
+	public void setup() {
+		nested = Queries.nested();
+		multiFilter = Queries.multiFilter();
+		scored = Queries.scored();
+		score = Queries.score();
+	}
+
+	@Benchmark
+	public QueryBuilder nestedQuery() {
+		return Query.create(nested);
+	}
+
+	@Benchmark
+	public QueryBuilder multiFilterQuery() {
+		return Query.create(multiFilter);
+	}
+
+	@Benchmark
+	public QueryBuilder scoredQuery() {
+		return Query.create(scored);
+	}
+
+	@Benchmark
+	public org.opensearch.script.Script script() {
+		return Script.from(score);
+	}
+
+	@Benchmark
+	public AggregationBuilder aggregation() {
+		return Aggregation.builder(nested.getAggregations().get(0));
+	}
+
+}
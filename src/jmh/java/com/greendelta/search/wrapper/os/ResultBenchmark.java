@@ -0,0 +1,58 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.opensearch.search.SearchHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.greendelta.search.wrapper.aggregations.results.AggregationResult;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultBenchmark {
+
+	private SearchHit[] hits;
+	private FakeResponse aggregations;
+
+	@Setup
+	public void setup() {
+		hits = Hits.sources();
+		aggregations = new FakeResponse(new SearchHit[0], Hits.aggregations());
+	}
+
+	// reads one key of every hit, as a result list would
+	@Benchmark
+	public void sourceKey(Blackhole blackhole) {
+		for (var hit : hits) {
+			blackhole.consume(new SourceMap(hit.getSourceRef()).get("name"));
+		}
+	}
+
+	@Benchmark
+	public void sourceFull(Blackhole blackhole) {
+		for (var hit : hits) {
+			blackhole.consume(new SourceMap(hit.getSourceRef()).size());
+		}
+	}
+
+	@Benchmark
+	public List<AggregationResult> aggregations() {
+		return Result.aggregations(aggregations);
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.greendelta.search.wrapper.SearchQuery;
+import com.greendelta.search.wrapper.SearchResult;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+	private SearchQuery fields;
+	private SearchQuery fullResult;
+	private FakeRequest fieldsRequest;
+	private FakeRequest sourcesRequest;
+
+	@Setup
+	public void setup() {
+		fields = Queries.fields();
+		fullResult = Queries.fullResult();
+		fieldsRequest = new FakeRequest(new FakeResponse(Hits.fields(), List.of()));
+		sourcesRequest = new FakeRequest(new FakeResponse(Hits.sources(), List.of()));
+	}
+
+	@Benchmark
+	public SearchResult<Map<String, Object>> fields() {
+		return Search.run(fieldsRequest, fields);
+	}
+
+	// reads one key of every hit, as a result list would, so that the
+	// lazy source parsing is part of the measurement
+	@Benchmark
+	public void fullResult(Blackhole blackhole) {
+		var result = Search.run(sourcesRequest, fullResult);
+		for (var document : result.data) {
+			blackhole.consume(document.get("name"));
+		}
+	}
+
+}
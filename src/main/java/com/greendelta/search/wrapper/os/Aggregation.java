@@ -1,7 +1,11 @@
 package com.greendelta.search.wrapper.os;
 
+import java.util.List;
+import java.util.Map;
+
 import org.opensearch.search.aggregations.AggregationBuilder;
 import org.opensearch.search.aggregations.AggregationBuilders;
+import org.opensearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
 
 import com.greendelta.search.wrapper.aggregations.RangeAggregation;
 import com.greendelta.search.wrapper.aggregations.SearchAggregation;
@@ -29,6 +33,23 @@ class Aggregation {
 		return AggregationBuilders.terms(aggregation.name).field(aggregation.field).size(Integer.MAX_VALUE);
 	}
 
+	// composite sources return date keys as epoch millis unless a format is
+	// set; format is the one the terms aggregation would print them with
+	static AggregationBuilder compositeBuilder(TermsAggregation aggregation, int size, Map<String, Object> after,
+			String format) {
+		var source = new TermsValuesSourceBuilder(aggregation.name).field(aggregation.field);
+		if (format != null) {
+			source.format(format);
+		}
+		var builder = AggregationBuilders.composite(aggregation.name, List.of(source)).size(size);
+		if (after != null) {
+			builder.aggregateAfter(after);
+		}
+		if (!isNested(aggregation.field))
+			return builder;
+		return nest(builder, aggregation);
+	}
+
 	private static AggregationBuilder rangeBuilder(RangeAggregation aggregation) {
 		var builder = AggregationBuilders.range(aggregation.name).field(aggregation.field);
 		for (var range : aggregation.ranges) {
@@ -0,0 +1,184 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.greendelta.search.wrapper.SearchQuery;
+import com.greendelta.search.wrapper.SearchResult;
+import com.greendelta.search.wrapper.aggregations.TermsAggregation;
+import com.greendelta.search.wrapper.aggregations.results.AggregationResult;
+import com.greendelta.search.wrapper.os.Search.OsRequest;
+import com.greendelta.search.wrapper.os.Search.OsResponse;
+
+class AsyncSearch {
+
+	private static final Logger log = LogManager.getLogger(AsyncSearch.class);
+
+	static CompletableFuture<SearchResult<Map<String, Object>>> run(OsRequest request, SearchQuery searchQuery,
+			SearchOptions options) {
+		return recover(execute(request, searchQuery, options), searchQuery);
+	}
+
+	static CompletableFuture<SearchResult<Map<String, Object>>> recover(
+			CompletableFuture<SearchResult<Map<String, Object>>> search, SearchQuery searchQuery) {
+		return search.exceptionally(e -> {
+			if (searchQuery.getThrowErrors())
+				throw new CompletionException(e.getCause() != null ? e.getCause() : e);
+			log.error("Error during search", e);
+			var empty = new SearchResult<Map<String, Object>>();
+			Result.extend(empty, 0, searchQuery);
+			return empty;
+		});
+	}
+
+	static CompletableFuture<SearchResult<Map<String, Object>>> execute(OsRequest request, SearchQuery searchQuery,
+			SearchOptions options) {
+		Search.prepare(request, searchQuery, options);
+		var result = new SearchResult<Map<String, Object>>();
+		var projection = Projection.of(searchQuery);
+		Consumer<OsResponse> consumer = response -> {
+			for (var hit : response.getHits()) {
+				result.data.add(projection.apply(hit));
+			}
+		};
+		CompletableFuture<Long> totalHits = null;
+		if (searchQuery.isPaged() && options.compositeSize() == 0) {
+			Search.setupAggregations(request, searchQuery);
+			totalHits = traverse(request, searchQuery, consumer.andThen(
+					response -> result.aggregations.addAll(Result.aggregations(response))));
+		} else {
+			var open = !searchQuery.isPaged()
+					? request.openPointInTimeAsync()
+					: Futures.done();
+			totalHits = Futures.andFinally(open
+					.thenCompose(v -> !searchQuery.getAggregations().isEmpty()
+							? aggregate(request, searchQuery, options, result)
+							: CompletableFuture.completedFuture(0l))
+					.thenCompose(v -> traverse(request, searchQuery, options.slices(), consumer)),
+					request::closePointInTimeAsync);
+		}
+		return totalHits.thenApply(total -> {
+			result.resultInfo.count = result.data.size();
+			Result.extend(result, total, searchQuery);
+			return result;
+		});
+	}
+
+	static CompletableFuture<Set<String>> ids(OsRequest request, SearchQuery searchQuery, SearchOptions options) {
+		Search.prepareIds(request, searchQuery, options);
+		var ids = new HashSet<String>();
+		return traverse(request, searchQuery, options.slices(), response -> {
+			for (var hit : response.getHits()) {
+				ids.add(hit.getId());
+			}
+		}).<Set<String>> thenApply(total -> ids);
+	}
+
+	private static CompletableFuture<Long> aggregate(OsRequest request, SearchQuery searchQuery,
+			SearchOptions options, SearchResult<Map<String, Object>> result) {
+		var aggregations = request.copy();
+		aggregations.setSize(0);
+		var composites = new ArrayList<TermsAggregation>();
+		for (var aggregation : searchQuery.getAggregations()) {
+			if (options.compositeSize() > 0 && aggregation instanceof TermsAggregation terms) {
+				composites.add(terms);
+			} else {
+				aggregations.addAggregation(com.greendelta.search.wrapper.os.Aggregation.builder(aggregation));
+			}
+		}
+		return aggregations.executeAsync().thenCompose(response -> {
+			result.aggregations.addAll(Result.aggregations(response));
+			var next = Futures.done();
+			for (var terms : composites) {
+				next = next.thenCompose(v -> composite(request, terms, options.compositeSize()))
+						.thenAccept(result.aggregations::add);
+			}
+			return next.thenApply(v -> response.getTotalHits());
+		});
+	}
+
+	private static CompletableFuture<AggregationResult> composite(OsRequest request, TermsAggregation aggregation,
+			int size) {
+		var builder = Result.builder(aggregation.name, TermsAggregation.TYPE);
+		var totalCount = new AtomicLong();
+		var after = new AtomicReference<Map<String, Object>>();
+		return request.dateFormatAsync(aggregation.field).thenCompose(format -> Futures.repeat(() -> {
+			var page = request.copy();
+			page.setSize(0);
+			page.addAggregation(com.greendelta.search.wrapper.os.Aggregation.compositeBuilder(aggregation, size,
+					after.get(), format));
+			return page.executeAsync().thenApply(response -> {
+				var composite = Result.composite(response);
+				if (composite == null)
+					return false;
+				totalCount.addAndGet(Result.putEntries(composite, aggregation.name, builder));
+				after.set(composite.getBuckets().size() < size ? null : composite.afterKey());
+				return after.get() != null;
+			});
+		})).thenApply(v -> builder.totalCount((int) totalCount.get()).build());
+	}
+
+	private static CompletableFuture<Long> traverse(OsRequest request, SearchQuery searchQuery, Slices slices,
+			Consumer<OsResponse> consumer) {
+		if (searchQuery.isPaged() || !slices.isParallel())
+			return traverse(request, searchQuery, consumer);
+		var totalHits = new AtomicLong();
+		// the first failure stops the other slices at their next page
+		var failure = new AtomicReference<Throwable>();
+		var traversal = request.openPointInTimeAsync().thenCompose(v -> {
+			var futures = new CompletableFuture<?>[slices.count()];
+			for (var i = 0; i < slices.count(); i++) {
+				var slice = request.slice(i, slices.count());
+				futures[i] = traverse(slice, searchQuery, response -> {
+					if (failure.get() != null)
+						throw new CancellationException();
+					synchronized (consumer) {
+						consumer.accept(response);
+					}
+				}).thenAccept(totalHits::addAndGet).whenComplete((total, e) -> {
+					var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+					if (cause != null && !(cause instanceof CancellationException)) {
+						failure.compareAndSet(null, cause);
+					}
+				});
+			}
+			return CompletableFuture.allOf(futures).handle((total, e) -> {
+				if (e == null)
+					return totalHits.get();
+				var cause = failure.get() != null ? failure.get() : e;
+				throw cause instanceof CompletionException c ? c : new CompletionException(cause);
+			});
+		});
+		return Futures.andFinally(traversal, request::closePointInTimeAsync);
+	}
+
+	private static CompletableFuture<Long> traverse(OsRequest request, SearchQuery searchQuery,
+			Consumer<OsResponse> consumer) {
+		var cursor = new Cursor(request, searchQuery);
+		var totalHits = new AtomicLong();
+		var traversal = Futures.repeat(() -> cursor.nextAsync().thenApply(response -> {
+			if (response == null)
+				return false;
+			consumer.accept(response);
+			if (searchQuery.isPaged()) {
+				totalHits.set(response.getTotalHits());
+			} else {
+				totalHits.addAndGet(response.getHits().length);
+			}
+			return true;
+		})).thenApply(v -> totalHits.get());
+		return Futures.andFinally(traversal, cursor::closeAsync);
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.List;
+
+public class BulkException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+	private final List<BulkFailure> failures;
+
+	BulkException(List<BulkFailure> failures) {
+		super(failures.size() + " bulk items failed, first: " + failures.get(0).message());
+		this.failures = List.copyOf(failures);
+	}
+
+	public List<BulkFailure> getFailures() {
+		return failures;
+	}
+
+}
@@ -0,0 +1,5 @@
+package com.greendelta.search.wrapper.os;
+
+public record BulkFailure(String id, int status, String message) {
+
+}
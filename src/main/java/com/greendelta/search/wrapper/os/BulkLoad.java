@@ -0,0 +1,61 @@
+package com.greendelta.search.wrapper.os;
+
+import org.opensearch.client.Client;
+import org.opensearch.common.settings.Settings;
+
+public class BulkLoad implements AutoCloseable {
+
+	private static final String REFRESH_INTERVAL = "index.refresh_interval";
+	private static final String REPLICAS = "index.number_of_replicas";
+
+	private final Runnable onClose;
+	private boolean closed;
+
+	BulkLoad(Runnable onClose) {
+		this.onClose = onClose;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		onClose.run();
+	}
+
+	// turns off refreshes and replicas and returns the previous values
+	static Settings suspend(Client client, String indexName) {
+		// the name is an alias, the settings are keyed by the index behind it
+		var settings = client.admin().indices().prepareGetSettings(indexName).execute().actionGet()
+				.getIndexToSettings().values().stream().findFirst().orElse(Settings.EMPTY);
+		var suspended = Settings.builder();
+		copy(settings, suspended, REFRESH_INTERVAL);
+		copy(settings, suspended, REPLICAS);
+		update(client, indexName, Settings.builder().put(REFRESH_INTERVAL, "-1").put(REPLICAS, 0));
+		return suspended.build();
+	}
+
+	static void restore(Client client, String indexName, Settings suspended) {
+		var settings = Settings.builder();
+		copy(suspended, settings, REFRESH_INTERVAL);
+		copy(suspended, settings, REPLICAS);
+		update(client, indexName, settings);
+		client.admin().indices().prepareRefresh(indexName).execute().actionGet();
+	}
+
+	// unset values are copied as null, so that restoring them resets the
+	// index to the default
+	private static void copy(Settings from, Settings.Builder to, String key) {
+		var value = from.get(key);
+		if (value != null) {
+			to.put(key, value);
+		} else {
+			to.putNull(key);
+		}
+	}
+
+	private static void update(Client client, String indexName, Settings.Builder settings) {
+		client.admin().indices().prepareUpdateSettings(indexName).setSettings(settings).execute().actionGet();
+	}
+
+}
@@ -0,0 +1,107 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.function.Consumer;
+
+import org.opensearch.action.support.WriteRequest.RefreshPolicy;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.core.common.unit.ByteSizeUnit;
+import org.opensearch.core.common.unit.ByteSizeValue;
+
+public class BulkOptions {
+
+	private int actions = 1000;
+	private ByteSizeValue bytes = new ByteSizeValue(5, ByteSizeUnit.MB);
+	private TimeValue flushInterval;
+	private int concurrentRequests = 1;
+	private RefreshPolicy refreshPolicy = RefreshPolicy.NONE;
+	private int retries = 3;
+	private long backoff = 100;
+	private Consumer<BulkFailure> onFailure;
+	private BulkSizer sizer;
+
+	public BulkOptions actions(int actions) {
+		this.actions = actions;
+		return this;
+	}
+
+	int actions() {
+		return actions;
+	}
+
+	public BulkOptions bytes(long bytes) {
+		this.bytes = new ByteSizeValue(bytes);
+		return this;
+	}
+
+	ByteSizeValue bytes() {
+		return bytes;
+	}
+
+	public BulkOptions flushInterval(long millis) {
+		this.flushInterval = millis > 0 ? TimeValue.timeValueMillis(millis) : null;
+		return this;
+	}
+
+	TimeValue flushInterval() {
+		return flushInterval;
+	}
+
+	public BulkOptions concurrentRequests(int concurrentRequests) {
+		this.concurrentRequests = Math.max(0, concurrentRequests);
+		return this;
+	}
+
+	int concurrentRequests() {
+		return concurrentRequests;
+	}
+
+	public BulkOptions refreshPolicy(RefreshPolicy refreshPolicy) {
+		this.refreshPolicy = refreshPolicy != null ? refreshPolicy : RefreshPolicy.NONE;
+		return this;
+	}
+
+	RefreshPolicy refreshPolicy() {
+		return refreshPolicy;
+	}
+
+	public BulkOptions retries(int retries) {
+		this.retries = Math.max(0, retries);
+		return this;
+	}
+
+	int retries() {
+		return retries;
+	}
+
+	public BulkOptions backoff(long initialDelayMillis) {
+		this.backoff = Math.max(1, initialDelayMillis);
+		return this;
+	}
+
+	long backoff() {
+		return backoff;
+	}
+
+	// receives the items that failed after all retries; without it, closing
+	// the pipeline throws a BulkException with these items
+	public BulkOptions onFailure(Consumer<BulkFailure> onFailure) {
+		this.onFailure = onFailure;
+		return this;
+	}
+
+	Consumer<BulkFailure> onFailure() {
+		return onFailure;
+	}
+
+	// replaces the fixed number of actions per bulk with an adaptive size;
+	// the byte limit still applies
+	public BulkOptions adaptive(BulkSizer sizer) {
+		this.sizer = sizer;
+		return this;
+	}
+
+	BulkSizer sizer() {
+		return sizer;
+	}
+
+}
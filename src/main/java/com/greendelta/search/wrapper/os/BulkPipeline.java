@@ -0,0 +1,121 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.opensearch.action.DocWriteRequest;
+import org.opensearch.action.bulk.BackoffPolicy;
+import org.opensearch.action.bulk.BulkProcessor;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.action.support.WriteRequest.RefreshPolicy;
+import org.opensearch.core.action.ActionListener;
+
+public class BulkPipeline implements AutoCloseable {
+
+	private final OsClient client;
+	private final BulkProcessor processor;
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+	private final Queue<BulkFailure> failures = new ConcurrentLinkedQueue<>();
+	private final Consumer<BulkFailure> onFailure;
+	private final BulkSizer sizer;
+	// items added but not yet sent
+	private final AtomicInteger pending = new AtomicInteger();
+
+	BulkPipeline(OsClient client, BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer,
+			BulkOptions options) {
+		this.client = client;
+		this.onFailure = options.onFailure() != null
+				? options.onFailure()
+				: failures::add;
+		this.sizer = options.sizer();
+		var retry = new BulkRetry(consumer, options.retries(), options.backoff(), sizer,
+				client.instrumentation());
+		this.processor = BulkProcessor.builder(retry, new Listener())
+				.setBulkActions(sizer == null ? options.actions() : -1)
+				.setBulkSize(options.bytes())
+				.setFlushInterval(options.flushInterval())
+				.setConcurrentRequests(options.concurrentRequests())
+				.setBackoffPolicy(BackoffPolicy.noBackoff())
+				.build();
+	}
+
+	public BulkPipeline index(String id, Map<String, Object> content) {
+		add(client.indexRequest(id, content, RefreshPolicy.NONE));
+		return this;
+	}
+
+	public BulkPipeline update(String id, Map<String, Object> update) {
+		add(client.updateRequest(id, update, RefreshPolicy.NONE));
+		return this;
+	}
+
+	public BulkPipeline update(String id, String script, Map<String, Object> parameters) {
+		add(client.updateRequest(id, script, parameters, RefreshPolicy.NONE));
+		return this;
+	}
+
+	public BulkPipeline remove(String id) {
+		add(client.deleteRequest(id, RefreshPolicy.NONE));
+		return this;
+	}
+
+	private void add(DocWriteRequest<?> request) {
+		processor.add(request);
+		if (sizer == null)
+			return;
+		if (pending.incrementAndGet() >= sizer.size()) {
+			processor.flush();
+		}
+	}
+
+	public void flush() {
+		processor.flush();
+	}
+
+	@Override
+	public void close() {
+		try {
+			processor.awaitClose(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		var e = failure.get();
+		if (e != null)
+			throw new RuntimeException("Bulk request failed", e);
+		if (!failures.isEmpty())
+			throw new BulkException(new ArrayList<>(failures));
+	}
+
+	private class Listener implements BulkProcessor.Listener {
+
+		@Override
+		public void beforeBulk(long executionId, BulkRequest request) {
+			// also for bulks that were sent because of the byte size or the
+			// flush interval
+			pending.addAndGet(-request.numberOfActions());
+		}
+
+		@Override
+		public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+			BulkRetry.failures(response).forEach(onFailure);
+			client.written();
+		}
+
+		@Override
+		public void afterBulk(long executionId, BulkRequest request, Throwable e) {
+			failure.compareAndSet(null, e);
+			client.written();
+		}
+
+	}
+
+}
@@ -0,0 +1,161 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.opensearch.ExceptionsHelper;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.rest.RestStatus;
+
+import com.greendelta.search.wrapper.os.Instrumentation.BulkStats;
+
+// sends bulk requests and resends the items that were rejected because the
+// write queue was full, with exponential backoff and jitter, until the
+// retry budget is used up; the listener gets one response for all items
+class BulkRetry implements BiConsumer<BulkRequest, ActionListener<BulkResponse>> {
+
+	private final BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer;
+	private final int retries;
+	private final long backoff;
+	private final BulkSizer sizer;
+	private final Instrumentation instrumentation;
+
+	BulkRetry(BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer, int retries, long backoff,
+			BulkSizer sizer, Instrumentation instrumentation) {
+		this.consumer = consumer;
+		this.retries = retries;
+		this.backoff = backoff;
+		this.sizer = sizer;
+		this.instrumentation = instrumentation;
+	}
+
+	@Override
+	public void accept(BulkRequest request, ActionListener<BulkResponse> listener) {
+		new Attempt(request, listener).send(request);
+	}
+
+	static List<BulkFailure> failures(BulkResponse response) {
+		var failures = new ArrayList<BulkFailure>();
+		if (!response.hasFailures())
+			return failures;
+		for (var item : response.getItems()) {
+			if (!item.isFailed())
+				continue;
+			failures.add(new BulkFailure(item.getId(), item.status().getStatus(), item.getFailureMessage()));
+		}
+		return failures;
+	}
+
+	private long delay(int retry) {
+		var max = backoff << Math.min(retry, 20);
+		return max / 2 + ThreadLocalRandom.current().nextLong(max / 2 + 1);
+	}
+
+	private class Attempt {
+
+		private final BulkRequest original;
+		private final ActionListener<BulkResponse> listener;
+		private final BulkItemResponse[] items;
+		private int[] positions;
+		private int retry;
+		private long took;
+
+		private Attempt(BulkRequest original, ActionListener<BulkResponse> listener) {
+			this.original = original;
+			this.listener = listener;
+			this.items = new BulkItemResponse[original.numberOfActions()];
+			this.positions = new int[items.length];
+			for (var i = 0; i < positions.length; i++) {
+				positions[i] = i;
+			}
+		}
+
+		private void send(BulkRequest request) {
+			var start = System.nanoTime();
+			consumer.accept(request, ActionListener.wrap(
+					response -> onResponse(request, response, start),
+					e -> onFailure(request, e, start)));
+		}
+
+		private void onResponse(BulkRequest request, BulkResponse response, long start) {
+			took += response.getTook().millis();
+			var rejected = new ArrayList<Integer>();
+			var failed = 0;
+			var responses = response.getItems();
+			for (var i = 0; i < responses.length; i++) {
+				items[positions[i]] = responses[i];
+				if (!responses[i].isFailed())
+					continue;
+				failed++;
+				if (responses[i].status() == RestStatus.TOO_MANY_REQUESTS) {
+					rejected.add(positions[i]);
+				}
+			}
+			observe(request, response.getTook().millis(), rejected.size());
+			measured(request, start, response.getTook().millis(), rejected.size(), failed);
+			if (rejected.isEmpty() || retry >= retries) {
+				listener.onResponse(new BulkResponse(items, took));
+				return;
+			}
+			var next = new BulkRequest();
+			next.setRefreshPolicy(original.getRefreshPolicy());
+			next.timeout(original.timeout());
+			positions = new int[rejected.size()];
+			for (var i = 0; i < positions.length; i++) {
+				positions[i] = rejected.get(i);
+				next.add(original.requests().get(positions[i]));
+			}
+			schedule(next);
+		}
+
+		private void onFailure(BulkRequest request, Exception e, long start) {
+			var rejected = ExceptionsHelper.status(e) == RestStatus.TOO_MANY_REQUESTS;
+			var actions = request.numberOfActions();
+			if (rejected) {
+				observe(request, 0, actions);
+			}
+			measured(request, start, 0, rejected ? actions : 0, actions);
+			if (rejected && retry < retries) {
+				schedule(request);
+				return;
+			}
+			if (request == original) {
+				listener.onFailure(e);
+				return;
+			}
+			// earlier attempts already wrote a part of the items
+			for (var position : positions) {
+				var item = original.requests().get(position);
+				var failure = new BulkItemResponse.Failure(item.index(), item.id(), e);
+				items[position] = new BulkItemResponse(position, item.opType(), failure);
+			}
+			listener.onResponse(new BulkResponse(items, took));
+		}
+
+		private void observe(BulkRequest request, long took, int rejected) {
+			if (sizer == null)
+				return;
+			sizer.observe(took, request.estimatedSizeInBytes(), request.numberOfActions(), rejected);
+		}
+
+		private void measured(BulkRequest request, long start, long took, int rejected, int failed) {
+			instrumentation.onBulk(new BulkStats(System.nanoTime() - start, took, request.numberOfActions(),
+					request.estimatedSizeInBytes(), rejected, failed));
+		}
+
+		private void schedule(BulkRequest request) {
+			var delay = delay(retry++);
+			CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+					.execute(() -> send(request));
+		}
+
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.greendelta.search.wrapper.os;
+
+// AIMD controller for the number of actions per bulk request: the size grows
+// by a fixed step while full bulks stay below the target latency, shrinks by
+// a quarter when they take longer and is halved when items are rejected; the
+// size is also capped by the payload limit, using the average item size
+public class BulkSizer {
+
+	private final long targetMillis;
+	private final int min;
+	private final int max;
+	private final long maxBytes;
+	private final int step;
+	private int size;
+	private double itemBytes;
+
+	public BulkSizer(long targetMillis) {
+		this(targetMillis, 1000, 50, 10000, 5 * 1024 * 1024);
+	}
+
+	public BulkSizer(long targetMillis, int initial, int min, int max, long maxBytes) {
+		this.targetMillis = Math.max(1, targetMillis);
+		this.min = Math.max(1, min);
+		this.max = Math.max(this.min, max);
+		this.maxBytes = maxBytes;
+		this.size = Math.min(this.max, Math.max(this.min, initial));
+		this.step = Math.max(1, size / 10);
+	}
+
+	public synchronized int size() {
+		if (itemBytes <= 0 || maxBytes <= 0)
+			return size;
+		var limit = (int) Math.min(Integer.MAX_VALUE, maxBytes / itemBytes);
+		return Math.max(min, Math.min(size, limit));
+	}
+
+	synchronized void observe(long tookMillis, long bytes, int actions, int rejected) {
+		if (actions <= 0)
+			return;
+		var average = (double) bytes / actions;
+		itemBytes = itemBytes <= 0
+				? average
+				: 0.8 * itemBytes + 0.2 * average;
+		if (rejected > 0) {
+			size = Math.max(min, size / 2);
+		} else if (tookMillis > targetMillis) {
+			size = Math.max(min, size - size / 4);
+		} else if (actions >= size()) {
+			size = Math.min(max, size + step);
+		}
+	}
+
+}
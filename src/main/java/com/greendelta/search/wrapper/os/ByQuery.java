@@ -0,0 +1,83 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+import org.opensearch.action.ActionType;
+import org.opensearch.client.Client;
+import org.opensearch.client.node.NodeClient;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.tasks.TaskId;
+import org.opensearch.index.reindex.AbstractBulkByScrollRequest;
+import org.opensearch.index.reindex.BulkByScrollResponse;
+import org.opensearch.index.reindex.BulkByScrollTask;
+import org.opensearch.tasks.Task;
+import org.opensearch.tasks.TaskListener;
+
+class ByQuery {
+
+	// on a node client the request is started as a local task, so that its
+	// status can be polled and it can be cancelled while it runs; onComplete
+	// is called before the result is completed
+	static ByQueryTask start(Client client, ActionType<BulkByScrollResponse> action,
+			AbstractBulkByScrollRequest<?> request, ByQueryOptions options, Consumer<Throwable> onComplete) {
+		var future = new CompletableFuture<BulkByScrollResponse>();
+		var result = future.thenApply(ByQuery::status).whenComplete((status, e) -> onComplete
+				.accept(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e));
+		if (!(client instanceof NodeClient node)) {
+			try {
+				client.execute(action, request, ActionListener.wrap(future::complete, future::completeExceptionally));
+			} catch (Exception e) {
+				future.completeExceptionally(e);
+			}
+			return new ByQueryTask(client, null, null, result);
+		}
+		Task task;
+		try {
+			task = node.executeLocally(action, request, new TaskListener<BulkByScrollResponse>() {
+
+				@Override
+				public void onResponse(Task task, BulkByScrollResponse response) {
+					future.complete(response);
+				}
+
+				@Override
+				public void onFailure(Task task, Exception e) {
+					future.completeExceptionally(e);
+				}
+
+			});
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+			return new ByQueryTask(client, null, null, result);
+		}
+		var id = new TaskId(node.getLocalNodeId(), task.getId());
+		var byQueryTask = new ByQueryTask(client, id,
+				task instanceof BulkByScrollTask t ? t : null, result);
+		byQueryTask.poll(options.onProgress(), options.pollInterval());
+		return byQueryTask;
+	}
+
+	private static ByQueryStatus status(BulkByScrollResponse response) {
+		var failures = failures(response);
+		if (!failures.isEmpty())
+			throw new BulkException(failures);
+		return ByQueryStatus.of(response.getStatus(), response.getTook().millis());
+	}
+
+	private static List<BulkFailure> failures(BulkByScrollResponse response) {
+		var failures = new ArrayList<BulkFailure>();
+		for (var failure : response.getBulkFailures()) {
+			failures.add(new BulkFailure(failure.getId(), failure.getStatus().getStatus(), failure.getMessage()));
+		}
+		for (var failure : response.getSearchFailures()) {
+			var status = failure.getStatus() != null ? failure.getStatus().getStatus() : 500;
+			failures.add(new BulkFailure(null, status, String.valueOf(failure.getReason())));
+		}
+		return failures;
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.function.Consumer;
+
+import org.opensearch.index.reindex.AbstractBulkByScrollRequest;
+
+public class ByQueryOptions {
+
+	private int slices = AbstractBulkByScrollRequest.AUTO_SLICES;
+	private float requestsPerSecond = Float.POSITIVE_INFINITY;
+	private int batchSize = 1000;
+	private boolean proceedOnConflicts;
+	private long pollInterval = 1000;
+	private Consumer<ByQueryStatus> onProgress;
+
+	// the number of parallel slices; 0 lets the cluster use one slice per
+	// shard
+	public ByQueryOptions slices(int slices) {
+		this.slices = slices > 0 ? slices : AbstractBulkByScrollRequest.AUTO_SLICES;
+		return this;
+	}
+
+	int slices() {
+		return slices;
+	}
+
+	// throttles the operation to the given number of documents per second,
+	// a value <= 0 removes the limit
+	public ByQueryOptions requestsPerSecond(float requestsPerSecond) {
+		this.requestsPerSecond = requestsPerSecond > 0 ? requestsPerSecond : Float.POSITIVE_INFINITY;
+		return this;
+	}
+
+	float requestsPerSecond() {
+		return requestsPerSecond;
+	}
+
+	public ByQueryOptions batchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+		return this;
+	}
+
+	int batchSize() {
+		return batchSize;
+	}
+
+	// counts version conflicts instead of aborting on the first one
+	public ByQueryOptions proceedOnConflicts(boolean proceedOnConflicts) {
+		this.proceedOnConflicts = proceedOnConflicts;
+		return this;
+	}
+
+	boolean proceedOnConflicts() {
+		return proceedOnConflicts;
+	}
+
+	// polls the status of the running task in the given interval
+	public ByQueryOptions onProgress(Consumer<ByQueryStatus> onProgress, long intervalMillis) {
+		this.onProgress = onProgress;
+		this.pollInterval = Math.max(1, intervalMillis);
+		return this;
+	}
+
+	Consumer<ByQueryStatus> onProgress() {
+		return onProgress;
+	}
+
+	long pollInterval() {
+		return pollInterval;
+	}
+
+	<R extends AbstractBulkByScrollRequest<R>> R apply(R request) {
+		return request.setSlices(slices)
+				.setRequestsPerSecond(requestsPerSecond)
+				.setAbortOnVersionConflict(!proceedOnConflicts);
+	}
+
+}
@@ -0,0 +1,13 @@
+package com.greendelta.search.wrapper.os;
+
+import org.opensearch.index.reindex.BulkByScrollTask;
+
+public record ByQueryStatus(long total, long updated, long deleted, long versionConflicts, long noops,
+		int batches, long tookMillis) {
+
+	static ByQueryStatus of(BulkByScrollTask.Status status, long tookMillis) {
+		return new ByQueryStatus(status.getTotal(), status.getUpdated(), status.getDeleted(),
+				status.getVersionConflicts(), status.getNoops(), status.getBatches(), tookMillis);
+	}
+
+}
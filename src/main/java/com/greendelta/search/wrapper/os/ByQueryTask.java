@@ -0,0 +1,62 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.opensearch.action.admin.cluster.node.tasks.cancel.CancelTasksResponse;
+import org.opensearch.client.Client;
+import org.opensearch.core.tasks.TaskId;
+import org.opensearch.index.reindex.BulkByScrollTask;
+
+// an update or delete by query that runs on the cluster; the status and
+// cancellation are only available when the task runs on the node of the
+// client
+public class ByQueryTask {
+
+	private final Client client;
+	private final TaskId id;
+	private final BulkByScrollTask task;
+	private final CompletableFuture<ByQueryStatus> result;
+
+	ByQueryTask(Client client, TaskId id, BulkByScrollTask task, CompletableFuture<ByQueryStatus> result) {
+		this.client = client;
+		this.id = id;
+		this.task = task;
+		this.result = result;
+	}
+
+	public CompletableFuture<ByQueryStatus> result() {
+		return result;
+	}
+
+	public boolean isDone() {
+		return result.isDone();
+	}
+
+	public ByQueryStatus status() {
+		if (task == null)
+			return null;
+		var took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.getStartTimeNanos());
+		return ByQueryStatus.of(task.getStatus(), took);
+	}
+
+	public CompletableFuture<Void> cancel() {
+		if (id == null)
+			return CompletableFuture.failedFuture(new UnsupportedOperationException("The task is not known"));
+		return Futures.<CancelTasksResponse> ofVoid(
+				listener -> client.admin().cluster().prepareCancelTasks().setTaskId(id).execute(listener));
+	}
+
+	void poll(Consumer<ByQueryStatus> onProgress, long intervalMillis) {
+		if (task == null || onProgress == null)
+			return;
+		CompletableFuture.runAsync(() -> {
+			if (result.isDone())
+				return;
+			onProgress.accept(status());
+			poll(onProgress, intervalMillis);
+		}, CompletableFuture.delayedExecutor(intervalMillis, TimeUnit.MILLISECONDS));
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.greendelta.search.wrapper.os;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.opensearch.search.SearchHit;
+
+import com.greendelta.search.wrapper.SearchQuery;
+import com.greendelta.search.wrapper.os.Search.OsRequest;
+import com.greendelta.search.wrapper.os.Search.OsResponse;
+
+class Cursor implements AutoCloseable {
+
+	static final int PAGE_SIZE = 10000;
+
+	private final OsRequest request;
+	private final boolean paged;
+	private boolean opened;
+	private boolean done;
+
+	Cursor(OsRequest request, SearchQuery searchQuery) {
+		this.request = request;
+		this.paged = searchQuery.isPaged();
+	}
+
+	OsResponse next() throws IOException {
+		if (done)
+			return null;
+		try {
+			if (!paged && !opened) {
+				request.openPointInTime();
+				opened = true;
+			}
+			var response = request.execute();
+			var hits = response.getHits();
+			if (paged || hits.length < PAGE_SIZE) {
+				close();
+			} else {
+				request.setSearchAfter(hits[hits.length - 1].getSortValues());
+			}
+			return response;
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	CompletableFuture<OsResponse> nextAsync() {
+		if (done)
+			return CompletableFuture.completedFuture(null);
+		var open = !paged && !opened
+				? request.openPointInTimeAsync().thenRun(() -> opened = true)
+				: Futures.done();
+		return open.thenCompose(v -> request.executeAsync()).thenApply(response -> {
+			var hits = response.getHits();
+			if (paged || hits.length < PAGE_SIZE) {
+				done = true;
+			} else {
+				request.setSearchAfter(hits[hits.length - 1].getSortValues());
+			}
+			return response;
+		}).whenComplete((response, e) -> {
+			if (e != null) {
+				done = true;
+			}
+		});
+	}
+
+	CompletableFuture<Void> closeAsync() {
+		done = true;
+		if (!opened)
+			return Futures.done();
+		opened = false;
+		return request.closePointInTimeAsync();
+	}
+
+	// onError receives the failure of a page before it is thrown to the
+	// consumer of the stream
+	Stream<SearchHit> hits(Consumer<Throwable> onError) {
+		var pages = new Spliterators.AbstractSpliterator<SearchHit[]>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super SearchHit[]> action) {
+				OsResponse response;
+				try {
+					response = next();
+				} catch (IOException e) {
+					onError.accept(e);
+					throw new UncheckedIOException(e);
+				} catch (RuntimeException e) {
+					onError.accept(e);
+					throw e;
+				}
+				if (response == null)
+					return false;
+				action.accept(response.getHits());
+				return true;
+			}
+		};
+		return StreamSupport.stream(pages, false).flatMap(Arrays::stream).onClose(this::close);
+	}
+
+	@Override
+	public void close() {
+		done = true;
+		if (!opened)
+			return;
+		opened = false;
+		request.closePointInTime();
+	}
+
+}
@@ -0,0 +1,14 @@
+package com.greendelta.search.wrapper.os;
+
+// how the fields of field limited searches are loaded: FETCH uses the
+// fields API (reads _source on the data nodes), DOC_VALUES and STORED never
+// touch _source but require doc values or store: true in the mapping
+public enum FieldRetrieval {
+
+	FETCH,
+
+	DOC_VALUES,
+
+	STORED;
+
+}
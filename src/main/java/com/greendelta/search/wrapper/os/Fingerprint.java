@@ -0,0 +1,31 @@
+package com.greendelta.search.wrapper.os;
+
+import com.greendelta.search.wrapper.SearchQuery;
+
+class Fingerprint {
+
+	// everything that goes into the search request or into the mapping of
+	// its response; the query is compared in its built (JSON) form
+	static String of(SearchQuery searchQuery, SearchOptions options) {
+		var s = new StringBuilder();
+		s.append(Query.create(searchQuery, options.coalesceNested())).append('\n');
+		s.append(searchQuery.isPaged()).append(' ')
+				.append(searchQuery.getPage()).append(' ')
+				.append(searchQuery.getPageSize()).append('\n');
+		s.append(searchQuery.getSortBy()).append('\n');
+		for (var aggregation : searchQuery.getAggregations()) {
+			s.append(Aggregation.builder(aggregation)).append('\n');
+		}
+		s.append(searchQuery.getFullResult()).append('\n');
+		for (var field : searchQuery.getFields()) {
+			s.append(field.name).append(field.isArray ? "[]" : "").append(' ');
+		}
+		s.append('\n').append(options.compositeSize()).append(' ')
+				.append(options.sourceFilter()).append(' ')
+				.append(options.fieldRetrieval()).append(' ')
+				.append(options.routing()).append(' ')
+				.append(options.tiebreaker());
+		return s.toString();
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.opensearch.core.action.ActionListener;
+
+class Futures {
+
+	static <T> CompletableFuture<T> of(Consumer<ActionListener<T>> action) {
+		var future = new CompletableFuture<T>();
+		try {
+			action.accept(ActionListener.wrap(future::complete, future::completeExceptionally));
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	static <T> CompletableFuture<Void> ofVoid(Consumer<ActionListener<T>> action) {
+		return Futures.<T> of(action).thenAccept(response -> {
+		});
+	}
+
+	static CompletableFuture<Void> done() {
+		return CompletableFuture.completedFuture(null);
+	}
+
+	static CompletableFuture<Void> repeat(Supplier<CompletableFuture<Boolean>> step) {
+		return step.get().thenCompose(next -> next ? repeat(step) : done());
+	}
+
+	static <T> CompletableFuture<T> andFinally(CompletableFuture<T> future,
+			Supplier<CompletableFuture<Void>> action) {
+		return future.handle((value, e) -> action.get().handle((v, e2) -> {
+			if (e != null)
+				throw Futures.unwrapped(e);
+			if (e2 != null)
+				throw Futures.unwrapped(e2);
+			return value;
+		})).thenCompose(f -> f);
+	}
+
+	static RuntimeException unwrapped(Throwable e) {
+		if (e instanceof RuntimeException r)
+			return r;
+		return new RuntimeException(e);
+	}
+
+}
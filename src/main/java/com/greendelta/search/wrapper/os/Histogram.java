@@ -0,0 +1,67 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// lock free histogram of positive values with 8 buckets per power of two,
+// so percentiles are exact within about 12%
+public class Histogram {
+
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		buckets.incrementAndGet(index(value));
+		count.increment();
+		sum.add(value);
+	}
+
+	public long count() {
+		return count.sum();
+	}
+
+	public double mean() {
+		var n = count.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	// the upper bound of the bucket that contains the given percentile
+	public long percentile(double percentile) {
+		var n = count.sum();
+		if (n == 0)
+			return 0;
+		var rank = (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100);
+		var seen = 0l;
+		for (var i = 0; i < buckets.length(); i++) {
+			seen += buckets.get(i);
+			if (seen >= Math.max(1, rank))
+				return upperBound(i);
+		}
+		return upperBound(buckets.length() - 1);
+	}
+
+	private static int index(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		var exponent = 63 - Long.numberOfLeadingZeros(value);
+		var sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	private static long upperBound(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		var exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+		var sub = index % SUB_BUCKETS;
+		var base = (SUB_BUCKETS + (long) sub) << (exponent - SUB_BITS);
+		return base + (1l << (exponent - SUB_BITS)) - 1;
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.Map;
+
+import org.opensearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.opensearch.action.support.WriteRequest.RefreshPolicy;
+import org.opensearch.client.Client;
+
+// builds a new version of the index with the settings and mapping of the
+// current one while searches still run against the current index; commit
+// switches the alias to the new index, closing without commit drops it.
+// The client rejects writes while the rebuild is open, see
+// OsClient.rebuild.
+public class IndexRebuild implements AutoCloseable {
+
+	private final OsClient osClient;
+	private final Client client;
+	private final String alias;
+	private final String[] old;
+	private final String index;
+	private final OsClient target;
+	private final BulkLoad load;
+	private boolean committed;
+	private boolean closed;
+
+	IndexRebuild(OsClient osClient, Client client, String alias) {
+		this.osClient = osClient;
+		this.client = client;
+		this.alias = alias;
+		this.old = Indices.resolve(client, alias);
+		if (old.length == 0)
+			throw new IllegalStateException("Index " + alias + " does not exist");
+		this.index = Indices.versioned(alias);
+		Indices.create(client, index, osClient.layout(Indices.settings(client, old[0])),
+				Indices.mapping(client, old[0]));
+		this.target = new OsClient(client, index);
+		target.setRefreshPolicy(RefreshPolicy.NONE);
+		target.setBulkSizer(osClient.bulkSizer());
+		target.setInstrumentation(osClient.instrumentation());
+		target.setRouting(osClient.routing());
+		try {
+			this.load = target.bulkLoad();
+		} catch (RuntimeException e) {
+			try {
+				drop();
+			} catch (RuntimeException dropFailure) {
+				e.addSuppressed(dropFailure);
+			}
+			throw e;
+		}
+	}
+
+	public String index() {
+		return index;
+	}
+
+	public BulkPipeline bulk(BulkOptions options) {
+		return target.bulk(options);
+	}
+
+	public void index(Map<String, Map<String, Object>> contentsById) {
+		target.index(contentsById);
+	}
+
+	public void commit() {
+		if (committed)
+			return;
+		if (closed)
+			throw new IllegalStateException("The rebuild of " + alias + " was closed");
+		load.close();
+		Indices.swap(client, alias, old, index);
+		committed = true;
+		osClient.rebuilt();
+		osClient.written();
+	}
+
+	@Override
+	public void close() {
+		if (committed || closed)
+			return;
+		closed = true;
+		try {
+			drop();
+		} finally {
+			osClient.rebuilt();
+		}
+	}
+
+	private void drop() {
+		client.admin().indices().delete(new DeleteIndexRequest(index)).actionGet();
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.Map;
+
+import org.opensearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.opensearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.opensearch.action.admin.indices.create.CreateIndexRequest;
+import org.opensearch.action.admin.indices.mapping.get.GetFieldMappingsResponse;
+import org.opensearch.action.support.IndicesOptions;
+import org.opensearch.client.Client;
+import org.opensearch.common.settings.Settings;
+
+// the client reads and writes through an alias that points to a versioned
+// index, so that the index can be rebuilt and replaced without an outage
+class Indices {
+
+	// settings that are set by the cluster and can not be copied to a new index
+	private static final String[] INTERNAL = {
+			"index.uuid", "index.creation_date", "index.provided_name", "index.version.",
+			"index.history.", "index.resize.", "index.routing.allocation.initial_recovery.", "index.blocks." };
+
+	// the indices behind the alias; for indices that were created before
+	// aliases were used, this is the index with the name of the alias
+	static String[] resolve(Client client, String alias) {
+		return client.admin().indices().prepareGetIndex().setIndices(alias)
+				.setIndicesOptions(IndicesOptions.lenientExpandOpen())
+				.execute().actionGet().getIndices();
+	}
+
+	static String versioned(String alias) {
+		return alias + "_" + System.currentTimeMillis();
+	}
+
+	static Settings settings(Client client, String index) {
+		var settings = client.admin().indices().prepareGetSettings(index).execute().actionGet()
+				.getIndexToSettings().get(index);
+		return settings.filter(key -> !isInternal(key));
+	}
+
+	private static boolean isInternal(String key) {
+		for (var prefix : INTERNAL) {
+			if (key.startsWith(prefix))
+				return true;
+		}
+		return false;
+	}
+
+	static Map<String, Object> mapping(Client client, String index) {
+		return client.admin().indices().prepareGetMappings(index).execute().actionGet()
+				.getMappings().get(index).getSourceAsMap();
+	}
+
+	// the pattern that terms aggregations print the keys of a date field
+	// with, i.e. the first of its mapped formats; null for other fields
+	static String dateFormat(GetFieldMappingsResponse response, String field) {
+		for (var fields : response.mappings().values()) {
+			var mapping = fields.get(field);
+			if (mapping == null)
+				continue;
+			for (var value : mapping.sourceAsMap().values()) {
+				if (!(value instanceof Map<?, ?> properties))
+					continue;
+				var type = properties.get("type");
+				var format = properties.get("format");
+				if ("date".equals(type))
+					return firstPattern(format, "strict_date_optional_time");
+				if ("date_nanos".equals(type))
+					return firstPattern(format, "strict_date_optional_time_nanos");
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private static String firstPattern(Object format, String defaultPattern) {
+		if (format == null)
+			return defaultPattern;
+		return format.toString().split("\\|\\|")[0];
+	}
+
+	static void create(Client client, String index, Settings settings, Map<String, Object> mapping) {
+		var request = new CreateIndexRequest(index).settings(settings).mapping(mapping);
+		client.admin().indices().create(request).actionGet();
+	}
+
+	// points the alias to the new index and deletes the old indices in one
+	// atomic request, searches see either the old or the new index
+	static void swap(Client client, String alias, String[] old, String index) {
+		var request = new IndicesAliasesRequest();
+		for (var o : old) {
+			request.addAliasAction(AliasActions.removeIndex().index(o));
+		}
+		request.addAliasAction(AliasActions.add().index(index).alias(alias));
+		client.admin().indices().aliases(request).actionGet();
+	}
+
+}
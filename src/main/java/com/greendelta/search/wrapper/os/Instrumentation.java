@@ -0,0 +1,35 @@
+package com.greendelta.search.wrapper.os;
+
+// receives timings and statistics of the client; the methods are called on
+// the threads that run the operations and should return quickly
+public interface Instrumentation {
+
+	Instrumentation NONE = new Instrumentation() {
+	};
+
+	// one call per client operation; requests is the number of search
+	// requests it sent, e.g. the pages of an unpaged search
+	default void onOperation(Operation operation, long nanos, long requests, Throwable error) {
+	}
+
+	// one call per search request (page, slice or multi search item)
+	default void onSearch(SearchStats stats) {
+	}
+
+	// one call per bulk request, retries included
+	default void onBulk(BulkStats stats) {
+	}
+
+	enum Operation {
+		SEARCH, MULTI_SEARCH, AGGREGATE, STREAM, IDS, GET, HAS,
+		INDEX, UPDATE, REMOVE, BULK, UPDATE_BY_QUERY, DELETE_BY_QUERY, REFRESH, CREATE, CLEAR, DELETE;
+	}
+
+	record SearchStats(long nanos, long tookMillis, int hits, long sourceBytes, int failedShards,
+			boolean timedOut) {
+	}
+
+	record BulkStats(long nanos, long tookMillis, int actions, long bytes, int rejected, int failed) {
+	}
+
+}
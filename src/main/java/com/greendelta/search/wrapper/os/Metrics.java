@@ -0,0 +1,128 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// default instrumentation based on histograms and LongAdder counters;
+// latencies are recorded in microseconds, server took times in milliseconds
+public class Metrics implements Instrumentation {
+
+	private final Map<Operation, Histogram> latency = new EnumMap<>(Operation.class);
+	private final Map<Operation, Histogram> requests = new EnumMap<>(Operation.class);
+	private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+	private final Histogram searchLatency = new Histogram();
+	private final Histogram searchTook = new Histogram();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder sourceBytes = new LongAdder();
+	private final LongAdder shardFailures = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+
+	private final Histogram bulkLatency = new Histogram();
+	private final Histogram bulkTook = new Histogram();
+	private final LongAdder bulkActions = new LongAdder();
+	private final LongAdder bulkBytes = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	public Metrics() {
+		for (var operation : Operation.values()) {
+			latency.put(operation, new Histogram());
+			requests.put(operation, new Histogram());
+			errors.put(operation, new LongAdder());
+		}
+	}
+
+	@Override
+	public void onOperation(Operation operation, long nanos, long requests, Throwable error) {
+		latency.get(operation).record(nanos / 1000);
+		this.requests.get(operation).record(requests);
+		if (error != null) {
+			errors.get(operation).increment();
+		}
+	}
+
+	@Override
+	public void onSearch(SearchStats stats) {
+		searchLatency.record(stats.nanos() / 1000);
+		searchTook.record(stats.tookMillis());
+		hits.add(stats.hits());
+		sourceBytes.add(stats.sourceBytes());
+		shardFailures.add(stats.failedShards());
+		if (stats.timedOut()) {
+			timeouts.increment();
+		}
+	}
+
+	@Override
+	public void onBulk(BulkStats stats) {
+		bulkLatency.record(stats.nanos() / 1000);
+		bulkTook.record(stats.tookMillis());
+		bulkActions.add(stats.actions());
+		bulkBytes.add(stats.bytes());
+		rejected.add(stats.rejected());
+		failed.add(stats.failed());
+	}
+
+	public Histogram latency(Operation operation) {
+		return latency.get(operation);
+	}
+
+	public Histogram requests(Operation operation) {
+		return requests.get(operation);
+	}
+
+	public long errors(Operation operation) {
+		return errors.get(operation).sum();
+	}
+
+	public Histogram searchLatency() {
+		return searchLatency;
+	}
+
+	public Histogram searchTook() {
+		return searchTook;
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long sourceBytes() {
+		return sourceBytes.sum();
+	}
+
+	public long shardFailures() {
+		return shardFailures.sum();
+	}
+
+	public long timeouts() {
+		return timeouts.sum();
+	}
+
+	public Histogram bulkLatency() {
+		return bulkLatency;
+	}
+
+	public Histogram bulkTook() {
+		return bulkTook;
+	}
+
+	public long bulkActions() {
+		return bulkActions.sum();
+	}
+
+	public long bulkBytes() {
+		return bulkBytes.sum();
+	}
+
+	public long rejected() {
+		return rejected.sum();
+	}
+
+	public long failed() {
+		return failed.sum();
+	}
+
+}
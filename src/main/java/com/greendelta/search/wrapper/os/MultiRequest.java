@@ -0,0 +1,84 @@
+package com.greendelta.search.wrapper.os;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opensearch.action.search.MultiSearchResponse;
+import org.opensearch.client.Client;
+
+class MultiRequest {
+
+	private final Client client;
+	private final String indexName;
+	private final Instrumentation instrumentation;
+	private final List<Item> items = new ArrayList<>();
+	private int maxConcurrentSearches;
+
+	MultiRequest(Client client, String indexName, Instrumentation instrumentation) {
+		this.client = client;
+		this.indexName = indexName;
+		this.instrumentation = instrumentation;
+	}
+
+	void setMaxConcurrentSearches(int maxConcurrentSearches) {
+		this.maxConcurrentSearches = maxConcurrentSearches;
+	}
+
+	Item add() {
+		var item = new Item();
+		items.add(item);
+		return item;
+	}
+
+	Request single() {
+		return new Request(client, indexName, instrumentation);
+	}
+
+	void execute() {
+		if (items.isEmpty())
+			return;
+		var multi = client.prepareMultiSearch();
+		for (var item : items) {
+			multi.add(item.searchRequest());
+		}
+		if (maxConcurrentSearches > 0) {
+			multi.setMaxConcurrentSearchRequests(maxConcurrentSearches);
+		}
+		try {
+			var start = System.nanoTime();
+			var responses = multi.execute().actionGet().getResponses();
+			for (var i = 0; i < items.size(); i++) {
+				var item = items.get(i);
+				item.response = responses[i];
+				if (!responses[i].isFailure()) {
+					item.measured(start, responses[i].getResponse());
+				}
+			}
+		} catch (Exception e) {
+			for (var item : items) {
+				item.response = new MultiSearchResponse.Item(null, e);
+			}
+		}
+	}
+
+	class Item extends Request {
+
+		private MultiSearchResponse.Item response;
+
+		private Item() {
+			super(client, indexName, instrumentation);
+		}
+
+		@Override
+		public Response execute() throws IOException {
+			if (response == null)
+				throw new IllegalStateException("Multi search was not executed");
+			if (response.isFailure())
+				throw new IOException(response.getFailureMessage(), response.getFailure());
+			return new Response(response.getResponse());
+		}
+
+	}
+
+}
@@ -0,0 +1,224 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.opensearch.action.DocWriteRequest;
+import org.opensearch.action.admin.indices.refresh.RefreshResponse;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.action.delete.DeleteResponse;
+import org.opensearch.action.get.GetResponse;
+import org.opensearch.action.get.MultiGetResponse;
+import org.opensearch.action.index.IndexResponse;
+import org.opensearch.action.support.WriteRequest.RefreshPolicy;
+import org.opensearch.action.update.UpdateResponse;
+import org.opensearch.client.Client;
+
+import com.greendelta.search.wrapper.SearchQuery;
+import com.greendelta.search.wrapper.SearchResult;
+import com.greendelta.search.wrapper.os.Instrumentation.Operation;
+
+public class OsAsyncClient {
+
+	private final OsClient osClient;
+	private final Client client;
+	private final String indexName;
+
+	OsAsyncClient(OsClient osClient, Client client, String indexName) {
+		this.osClient = osClient;
+		this.client = client;
+		this.indexName = indexName;
+	}
+
+	public CompletableFuture<SearchResult<Map<String, Object>>> search(SearchQuery searchQuery) {
+		var request = osClient.request();
+		var start = System.nanoTime();
+		var search = search(request, searchQuery).whenComplete(
+				(result, e) -> osClient.measured(Operation.SEARCH, start, request.requests(), unwrapped(e)));
+		return AsyncSearch.recover(search, searchQuery);
+	}
+
+	private CompletableFuture<SearchResult<Map<String, Object>>> search(Request request, SearchQuery searchQuery) {
+		var cache = searchQuery.isPaged() ? osClient.cache() : null;
+		var coalescer = osClient.coalescer();
+		if (cache == null && coalescer == null)
+			return AsyncSearch.execute(request, searchQuery, osClient.options());
+		var key = Fingerprint.of(searchQuery, osClient.options());
+		if (cache != null) {
+			var cached = cache.get(key);
+			if (cached != null)
+				return CompletableFuture.completedFuture(cached);
+		}
+		if (coalescer == null)
+			return execute(request, searchQuery, key, cache);
+		return coalescer.run(key, () -> execute(request, searchQuery, key, cache));
+	}
+
+	private CompletableFuture<SearchResult<Map<String, Object>>> execute(Request request, SearchQuery searchQuery,
+			String key, SearchCache cache) {
+		var generation = cache != null ? cache.generation() : 0;
+		return AsyncSearch.execute(request, searchQuery, osClient.options()).thenApply(result -> {
+			if (cache != null) {
+				cache.put(key, result, generation);
+			}
+			return result;
+		});
+	}
+
+	public CompletableFuture<Set<String>> searchIds(SearchQuery searchQuery) {
+		var request = osClient.request();
+		var start = System.nanoTime();
+		return AsyncSearch.ids(request, searchQuery, osClient.options())
+				.whenComplete((ids, e) -> osClient.measured(Operation.IDS, start, request.requests(), unwrapped(e)))
+				.exceptionally(e -> Search.failedIds(unwrapped(e), searchQuery));
+	}
+
+	public CompletableFuture<Void> index(String id, Map<String, Object> content) {
+		var request = osClient.indexRequest(id, content, osClient.refreshPolicy());
+		return written(measured(Operation.INDEX, System.nanoTime(),
+				Futures.<IndexResponse> ofVoid(listener -> client.index(request, listener))));
+	}
+
+	public CompletableFuture<Void> index(Map<String, Map<String, Object>> contentsById) {
+		var requests = new ArrayList<DocWriteRequest<?>>();
+		contentsById.forEach((id, content) -> requests.add(osClient.indexRequest(id, content, RefreshPolicy.NONE)));
+		return bulk(requests);
+	}
+
+	public CompletableFuture<Void> update(String id, Map<String, Object> update) {
+		var request = osClient.updateRequest(id, update, osClient.refreshPolicy());
+		return written(measured(Operation.UPDATE, System.nanoTime(),
+				Futures.<UpdateResponse> ofVoid(listener -> client.update(request, listener))));
+	}
+
+	public CompletableFuture<Void> update(String id, String script, Map<String, Object> parameters) {
+		var request = osClient.updateRequest(id, script, parameters, osClient.refreshPolicy());
+		return written(measured(Operation.UPDATE, System.nanoTime(),
+				Futures.<UpdateResponse> ofVoid(listener -> client.update(request, listener))));
+	}
+
+	public CompletableFuture<Void> update(Set<String> ids, Map<String, Object> update) {
+		var requests = new ArrayList<DocWriteRequest<?>>();
+		ids.forEach(id -> requests.add(osClient.updateRequest(id, update, RefreshPolicy.NONE)));
+		return bulk(requests);
+	}
+
+	public CompletableFuture<Void> update(Set<String> ids, String script, Map<String, Object> parameters) {
+		var requests = new ArrayList<DocWriteRequest<?>>();
+		ids.forEach(id -> requests.add(osClient.updateRequest(id, script, parameters, RefreshPolicy.NONE)));
+		return bulk(requests);
+	}
+
+	public ByQueryTask update(SearchQuery searchQuery, String script, Map<String, Object> parameters,
+			ByQueryOptions options) {
+		return osClient.updateByQuery(searchQuery, script, parameters, options);
+	}
+
+	public CompletableFuture<Void> update(Map<String, Map<String, Object>> updatesById) {
+		var requests = new ArrayList<DocWriteRequest<?>>();
+		updatesById.forEach((id, update) -> requests.add(osClient.updateRequest(id, update, RefreshPolicy.NONE)));
+		return bulk(requests);
+	}
+
+	public CompletableFuture<Void> remove(String id) {
+		var request = osClient.deleteRequest(id, osClient.refreshPolicy());
+		return written(measured(Operation.REMOVE, System.nanoTime(),
+				Futures.<DeleteResponse> ofVoid(listener -> client.delete(request, listener))));
+	}
+
+	public CompletableFuture<Void> remove(Set<String> ids) {
+		var requests = new ArrayList<DocWriteRequest<?>>();
+		ids.forEach(id -> requests.add(osClient.deleteRequest(id, RefreshPolicy.NONE)));
+		return bulk(requests);
+	}
+
+	public ByQueryTask remove(SearchQuery searchQuery, ByQueryOptions options) {
+		return osClient.removeByQuery(searchQuery, options);
+	}
+
+	public CompletableFuture<Boolean> has(String id) {
+		var request = osClient.hasRequest(id);
+		return measured(Operation.HAS, System.nanoTime(),
+				Futures.<GetResponse> of(listener -> client.get(request, listener)))
+				.thenApply(response -> response != null && response.isExists());
+	}
+
+	public CompletableFuture<Map<String, Object>> get(String id) {
+		return get(id, SourceFilter.ALL);
+	}
+
+	public CompletableFuture<Map<String, Object>> get(String id, SourceFilter filter) {
+		var request = osClient.getRequest(id, filter);
+		return measured(Operation.GET, System.nanoTime(),
+				Futures.<GetResponse> of(listener -> client.get(request, listener)))
+				.thenApply(OsClient::source);
+	}
+
+	public CompletableFuture<List<Map<String, Object>>> get(Set<String> ids) {
+		return get(ids, SourceFilter.ALL);
+	}
+
+	public CompletableFuture<List<Map<String, Object>>> get(Set<String> ids, SourceFilter filter) {
+		var request = osClient.multiGetRequest(ids, filter);
+		return measured(Operation.GET, System.nanoTime(),
+				Futures.<MultiGetResponse> of(listener -> client.multiGet(request, listener)))
+				.thenApply(OsClient::sources);
+	}
+
+	public CompletableFuture<Void> refresh() {
+		return written(measured(Operation.REFRESH, System.nanoTime(), Futures.<RefreshResponse> ofVoid(
+				listener -> client.admin().indices().prepareRefresh(indexName).execute(listener))));
+	}
+
+	private <T> CompletableFuture<T> measured(Operation operation, long start, CompletableFuture<T> future) {
+		return future.whenComplete((v, e) -> osClient.measured(operation, start, 0, unwrapped(e)));
+	}
+
+	private static Throwable unwrapped(Throwable e) {
+		return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+	}
+
+	private CompletableFuture<Void> written(CompletableFuture<Void> write) {
+		return write.whenComplete((v, e) -> osClient.written());
+	}
+
+	// sends the requests in bounded bulks one after another and refreshes
+	// once at the end, like the bulk operations of the blocking client
+	private CompletableFuture<Void> bulk(Collection<DocWriteRequest<?>> requests) {
+		var start = System.nanoTime();
+		var refresh = osClient.refreshPolicy();
+		var options = osClient.bulkOptions();
+		var sizer = options.sizer();
+		var retry = new BulkRetry(client::bulk, options.retries(), options.backoff(), sizer,
+				osClient.instrumentation());
+		var failures = new ArrayList<BulkFailure>();
+		var it = requests.iterator();
+		var next = Futures.repeat(() -> {
+			if (!it.hasNext())
+				return CompletableFuture.completedFuture(false);
+			var size = sizer != null ? sizer.size() : options.actions();
+			var bulk = new BulkRequest();
+			while (it.hasNext() && bulk.numberOfActions() < size) {
+				bulk.add(it.next());
+			}
+			bulk.setRefreshPolicy(options.refreshPolicy());
+			return written(Futures.<BulkResponse> of(listener -> retry.accept(bulk, listener))
+					.thenAccept(response -> failures.addAll(BulkRetry.failures(response))))
+					.thenApply(v -> it.hasNext());
+		});
+		if (refresh == RefreshPolicy.IMMEDIATE) {
+			next = next.thenCompose(v -> refresh());
+		}
+		return measured(Operation.BULK, start, next.thenRun(() -> {
+			if (!failures.isEmpty())
+				throw new BulkException(failures);
+		}));
+	}
+
+}
@@ -1,15 +1,28 @@
 package com.greendelta.search.wrapper.os;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.opensearch.action.DocWriteRequest.OpType;
+import org.opensearch.action.admin.indices.alias.Alias;
 import org.opensearch.action.admin.indices.create.CreateIndexRequest;
 import org.opensearch.action.admin.indices.delete.DeleteIndexRequest;
-import org.opensearch.action.bulk.BulkRequestBuilder;
 import org.opensearch.action.delete.DeleteRequest;
+import org.opensearch.action.get.GetRequest;
+import org.opensearch.action.get.GetResponse;
+import org.opensearch.action.get.MultiGetRequest;
+import org.opensearch.action.get.MultiGetResponse;
 import org.opensearch.action.index.IndexRequest;
 import org.opensearch.action.support.WriteRequest.RefreshPolicy;
 import org.opensearch.action.update.UpdateRequest;
@@ -17,163 +30,572 @@ import org.opensearch.client.Client;
 import org.opensearch.client.Requests;
 import org.opensearch.common.settings.Settings;
 import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.index.reindex.DeleteByQueryAction;
+import org.opensearch.index.reindex.DeleteByQueryRequest;
+import org.opensearch.index.reindex.UpdateByQueryAction;
+import org.opensearch.index.reindex.UpdateByQueryRequest;
 import org.opensearch.script.Script;
 import org.opensearch.script.ScriptType;
 
 import com.greendelta.search.wrapper.SearchClient;
 import com.greendelta.search.wrapper.SearchQuery;
 import com.greendelta.search.wrapper.SearchResult;
+import com.greendelta.search.wrapper.os.Instrumentation.Operation;
 
 public class OsClient implements SearchClient {
 
 	private final Client client;
 	private final String indexName;
+	private final SearchOptions options;
+	private final IndexState state;
+	private volatile RefreshPolicy refreshPolicy = RefreshPolicy.IMMEDIATE;
+	private volatile SearchCache cache;
+	private volatile SearchCoalescer coalescer;
+	private BulkSizer bulkSizer;
+	private volatile Instrumentation instrumentation = Instrumentation.NONE;
+	private Routing routing = Routing.NONE;
+	private Integer shards;
+	private Integer replicas;
 
 	public OsClient(Client client, String indexName) {
+		this(client, indexName, new SearchOptions(), new IndexState());
+	}
+
+	private OsClient(Client client, String indexName, SearchOptions options, IndexState state) {
 		this.client = client;
 		this.indexName = indexName;
+		this.options = options;
+		this.state = state;
+	}
+
+	// a client for the documents of one routing key, e.g. one tenant: all
+	// requests by id use the key and searches only hit the shards of the
+	// key; the view shares the cache of this client and takes its other
+	// settings at the time it is created
+	public OsClient routed(String routing) {
+		var view = new OsClient(client, indexName, options.copy().routing(routing), state);
+		view.refreshPolicy = refreshPolicy;
+		view.cache = cache;
+		view.coalescer = coalescer;
+		view.bulkSizer = bulkSizer;
+		view.instrumentation = instrumentation;
+		view.routing = (id, content) -> routing;
+		view.shards = shards;
+		view.replicas = replicas;
+		return view;
+	}
+
+	public OsAsyncClient async() {
+		return new OsAsyncClient(this, client, indexName);
+	}
+
+	// writes do not refresh while a bulk load is open
+	RefreshPolicy refreshPolicy() {
+		return state.loads > 0 ? RefreshPolicy.NONE : refreshPolicy;
+	}
+
+	public SearchOptions options() {
+		return options;
+	}
+
+	public void setRefreshPolicy(RefreshPolicy refreshPolicy) {
+		this.refreshPolicy = refreshPolicy != null ? refreshPolicy : RefreshPolicy.IMMEDIATE;
 	}
 
 	@Override
 	public SearchResult<Map<String, Object>> search(SearchQuery searchQuery) {
+		var request = request();
+		var start = System.nanoTime();
+		try {
+			var result = search(request, searchQuery);
+			measured(Operation.SEARCH, start, request.requests(), null);
+			return result;
+		} catch (Exception e) {
+			var error = e instanceof CompletionException && e.getCause() instanceof Exception cause ? cause : e;
+			measured(Operation.SEARCH, start, request.requests(), error);
+			return Search.failed(error, searchQuery);
+		}
+	}
+
+	private SearchResult<Map<String, Object>> search(Request request, SearchQuery searchQuery) throws IOException {
+		// unpaged searches can return any number of hits and are not cached
+		var cache = searchQuery.isPaged() ? this.cache : null;
+		var coalescer = this.coalescer;
+		if (cache == null && coalescer == null)
+			return Search.execute(request, searchQuery, options);
+		var key = Fingerprint.of(searchQuery, options);
+		if (cache != null) {
+			var cached = cache.get(key);
+			if (cached != null)
+				return cached;
+		}
+		if (coalescer == null)
+			return execute(request, searchQuery, key, cache);
+		return coalescer.run(key, () -> {
+			try {
+				return CompletableFuture.completedFuture(execute(request, searchQuery, key, cache));
+			} catch (IOException e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		}).join();
+	}
+
+	private SearchResult<Map<String, Object>> execute(Request request, SearchQuery searchQuery, String key,
+			SearchCache cache) throws IOException {
+		var generation = cache != null ? cache.generation() : 0;
+		var result = Search.execute(request, searchQuery, options);
+		if (cache != null) {
+			cache.put(key, result, generation);
+		}
+		return result;
+	}
+
+	public void setInstrumentation(Instrumentation instrumentation) {
+		this.instrumentation = instrumentation != null ? instrumentation : Instrumentation.NONE;
+	}
+
+	Instrumentation instrumentation() {
+		return instrumentation;
+	}
+
+	Request request() {
+		return new Request(client, indexName, instrumentation);
+	}
+
+	void measured(Operation operation, long start, long requests, Throwable error) {
+		instrumentation.onOperation(operation, System.nanoTime() - start, requests, error);
+	}
+
+	private void measure(Operation operation, Runnable call) {
+		measure(operation, () -> {
+			call.run();
+			return null;
+		});
+	}
+
+	private <T> T measure(Operation operation, Supplier<T> call) {
+		var start = System.nanoTime();
+		try {
+			var result = call.get();
+			measured(operation, start, 0, null);
+			return result;
+		} catch (RuntimeException e) {
+			measured(operation, start, 0, e);
+			throw e;
+		}
+	}
+
+	public void setCache(SearchCache cache) {
+		this.cache = cache;
+	}
+
+	SearchCache cache() {
+		return cache;
+	}
+
+	public void setCoalescer(SearchCoalescer coalescer) {
+		this.coalescer = coalescer;
+	}
+
+	SearchCoalescer coalescer() {
+		return coalescer;
+	}
+
+	// called after every write, cached results may be outdated then
+	void written() {
+		var cache = this.cache;
+		if (cache != null) {
+			cache.invalidate();
+		}
+	}
+
+	public List<SearchResult<Map<String, Object>>> search(List<SearchQuery> searchQueries) {
+		var request = new MultiRequest(client, indexName, instrumentation);
+		return measure(Operation.MULTI_SEARCH, () -> Search.run(request, searchQueries, options));
+	}
+
+	public SearchResult<Map<String, Object>> aggregate(SearchQuery searchQuery) {
+		var request = request();
+		var start = System.nanoTime();
 		try {
-			var request = new Request(client, indexName);
-			return Search.run(request, searchQuery);
+			var result = Search.aggregate(request, searchQuery, options);
+			measured(Operation.AGGREGATE, start, request.requests(), null);
+			return result;
 		} catch (Exception e) {
-			e.printStackTrace();
-			return new SearchResult<>();
+			measured(Operation.AGGREGATE, start, request.requests(), e);
+			return Search.failedAggregation(e, searchQuery);
 		}
 	}
 
+	public Stream<Map<String, Object>> stream(SearchQuery searchQuery) {
+		var request = request();
+		var start = System.nanoTime();
+		var error = new AtomicReference<Throwable>();
+		return Search.stream(request, searchQuery, options, error::set)
+				.onClose(() -> measured(Operation.STREAM, start, request.requests(), error.get()));
+	}
+
 	@Override
 	public Set<String> searchIds(SearchQuery searchQuery) {
-		var request = new Request(client, indexName);
-		return Search.ids(request, searchQuery);
+		var ids = new HashSet<String>();
+		var request = request();
+		var start = System.nanoTime();
+		try {
+			Search.ids(request, searchQuery, options, ids::add);
+			measured(Operation.IDS, start, request.requests(), null);
+			return ids;
+		} catch (Exception e) {
+			measured(Operation.IDS, start, request.requests(), e);
+			return Search.failedIds(e, searchQuery);
+		}
+	}
+
+	public long searchIds(SearchQuery searchQuery, Consumer<String> consumer) {
+		var request = request();
+		var start = System.nanoTime();
+		try {
+			var count = Search.ids(request, searchQuery, options, consumer);
+			measured(Operation.IDS, start, request.requests(), null);
+			return count;
+		} catch (IOException e) {
+			measured(Operation.IDS, start, request.requests(), e);
+			throw new UncheckedIOException(e);
+		} catch (RuntimeException e) {
+			measured(Operation.IDS, start, request.requests(), e);
+			throw e;
+		}
+	}
+
+	// the shard layout of new indices; clear() and rebuild() keep the layout
+	// of the current index unless it is set here
+	public void setShards(int shards) {
+		this.shards = Math.max(1, shards);
+	}
+
+	public void setReplicas(int replicas) {
+		this.replicas = Math.max(0, replicas);
+	}
+
+	Settings layout(Settings settings) {
+		var builder = Settings.builder().put(settings);
+		if (shards != null) {
+			builder.put("index.number_of_shards", shards);
+		}
+		if (replicas != null) {
+			builder.put("index.number_of_replicas", replicas);
+		}
+		return builder.build();
+	}
+
+	public void setRouting(Routing routing) {
+		this.routing = routing != null ? routing : Routing.NONE;
+	}
+
+	Routing routing() {
+		return routing;
+	}
+
+	private String routing(String id, Map<String, Object> content) {
+		var key = routing.of(id, content);
+		if (key == null && routing instanceof Routing.Field field)
+			throw new IllegalArgumentException("No routing key for document " + id + ": field " + field.name()
+					+ " is not set; use a routed client for requests by id");
+		return key;
 	}
 
 	@Override
 	public void create(Map<String, String> settings) {
+		measure(Operation.CREATE, () -> createIndex(settings));
+	}
+
+	private void createIndex(Map<String, String> settings) {
 		var exists = client.admin().indices().prepareExists(indexName).execute().actionGet().isExists();
 		if (exists)
 			return;
+		var index = Indices.versioned(indexName);
 		var indexSettings = settings.get("config");
-		var request = new CreateIndexRequest(indexName);
-		request.settings(Settings.builder()
-				.loadFromSource(indexSettings, XContentType.JSON).put("number_of_shards", 1));
+		var request = new CreateIndexRequest(index);
+		var layout = Settings.builder()
+				.loadFromSource(indexSettings, XContentType.JSON)
+				.put("number_of_shards", shards != null ? shards : 1);
+		if (replicas != null) {
+			layout.put("number_of_replicas", replicas);
+		}
+		request.settings(layout);
+		request.alias(new Alias(indexName));
 		client.admin().indices()
 				.create(request).actionGet();
 		var mapping = settings.get("mapping");
-		var mappingRequest = Requests.putMappingRequest(indexName);
+		var mappingRequest = Requests.putMappingRequest(index);
 		mappingRequest.source(mapping, XContentType.JSON);
 		client.admin().indices().putMapping(mappingRequest).actionGet();
 	}
 
 	@Override
 	public void index(String id, Map<String, Object> content) {
-		client.index(indexRequest(id, content, true)).actionGet();
+		index(id, content, refreshPolicy());
+	}
+
+	public void index(String id, Map<String, Object> content, RefreshPolicy refresh) {
+		try {
+			measure(Operation.INDEX, () -> client.index(indexRequest(id, content, refresh)).actionGet());
+		} finally {
+			written();
+		}
 	}
 
 	@Override
 	public void index(Map<String, Map<String, Object>> contentsById) {
-		var builder = client.prepareBulk();
-		for (var id : contentsById.keySet()) {
-			var content = contentsById.get(id);
-			builder.add(indexRequest(id, content, false));
+		measure(Operation.BULK, () -> {
+			try (var bulk = bulk(bulkOptions())) {
+				contentsById.forEach(bulk::index);
+			} finally {
+				refreshAfterBulk();
+			}
+		});
+	}
+
+	public BulkPipeline bulk(BulkOptions options) {
+		var refresh = options.refreshPolicy();
+		return new BulkPipeline(this, (request, listener) -> client.bulk(request.setRefreshPolicy(refresh), listener),
+				options);
+	}
+
+	// loads may overlap: the first one suspends the index settings, the
+	// last one to close restores them and refreshes the index once
+	public BulkLoad bulkLoad() {
+		checkWritable();
+		synchronized (state) {
+			if (state.loads == 0) {
+				state.suspended = BulkLoad.suspend(client, indexName);
+			}
+			state.loads++;
+		}
+		return new BulkLoad(this::closeLoad);
+	}
+
+	private void closeLoad() {
+		synchronized (state) {
+			if (--state.loads > 0)
+				return;
+			var suspended = state.suspended;
+			state.suspended = null;
+			try {
+				BulkLoad.restore(client, indexName, suspended);
+			} finally {
+				written();
+			}
+		}
+	}
+
+	public void refresh() {
+		measure(Operation.REFRESH, () -> client.admin().indices().prepareRefresh(indexName).execute().actionGet());
+		written();
+	}
+
+	// the sizer is shared by all bulk operations of the client, so the
+	// learned size carries over from one call to the next
+	public void setBulkSizer(BulkSizer bulkSizer) {
+		this.bulkSizer = bulkSizer;
+	}
+
+	BulkSizer bulkSizer() {
+		return bulkSizer;
+	}
+
+	BulkOptions bulkOptions() {
+		var options = new BulkOptions().adaptive(bulkSizer);
+		if (refreshPolicy() == RefreshPolicy.WAIT_UNTIL) {
+			options.refreshPolicy(RefreshPolicy.WAIT_UNTIL);
+		}
+		return options;
+	}
+
+	private void refreshAfterBulk() {
+		// a single refresh after all bulk requests instead of one per request
+		if (refreshPolicy() == RefreshPolicy.IMMEDIATE) {
+			refresh();
 		}
-		client.bulk(builder.setRefreshPolicy(RefreshPolicy.IMMEDIATE).request()).actionGet();
 	}
 
-	private IndexRequest indexRequest(String id, Map<String, Object> content, boolean refresh) {
+	IndexRequest indexRequest(String id, Map<String, Object> content, RefreshPolicy refresh) {
+		checkWritable();
 		var builder = client.prepareIndex(indexName).setId(id);
 		builder.setOpType(OpType.INDEX).setSource(content);
-		if (refresh) {
-			builder.setRefreshPolicy(RefreshPolicy.IMMEDIATE);
-		}
+		builder.setRouting(routing(id, content));
+		builder.setRefreshPolicy(refresh);
 		return builder.request();
 	}
 
 	@Override
 	public void update(String id, Map<String, Object> update) {
-		client.update(updateRequest(id, update, true)).actionGet();
+		update(id, update, refreshPolicy());
+	}
+
+	public void update(String id, Map<String, Object> update, RefreshPolicy refresh) {
+		try {
+			measure(Operation.UPDATE, () -> client.update(updateRequest(id, update, refresh)).actionGet());
+		} finally {
+			written();
+		}
 	}
 
 	@Override
 	public void update(String id, String script, Map<String, Object> parameters) {
-		client.update(updateRequest(id, script, parameters, true)).actionGet();
+		update(id, script, parameters, refreshPolicy());
+	}
+
+	public void update(String id, String script, Map<String, Object> parameters, RefreshPolicy refresh) {
+		try {
+			measure(Operation.UPDATE, () -> client.update(updateRequest(id, script, parameters, refresh)).actionGet());
+		} finally {
+			written();
+		}
 	}
 
 	@Override
 	public void update(Set<String> ids, Map<String, Object> update) {
-		var builder = client.prepareBulk();
-		for (var id : ids) {
-			builder.add(updateRequest(id, update, false));
-		}
-		client.bulk(builder.setRefreshPolicy(RefreshPolicy.IMMEDIATE).request()).actionGet();
+		measure(Operation.BULK, () -> {
+			try (var bulk = bulk(bulkOptions())) {
+				ids.forEach(id -> bulk.update(id, update));
+			} finally {
+				refreshAfterBulk();
+			}
+		});
 	}
 
 	@Override
 	public void update(Set<String> ids, String script, Map<String, Object> parameters) {
-		var builder = client.prepareBulk();
-		for (var id : ids) {
-			builder.add(updateRequest(id, script, parameters, false));
-		}
-		client.bulk(builder.setRefreshPolicy(RefreshPolicy.IMMEDIATE).request()).actionGet();
+		measure(Operation.BULK, () -> {
+			try (var bulk = bulk(bulkOptions())) {
+				ids.forEach(id -> bulk.update(id, script, parameters));
+			} finally {
+				refreshAfterBulk();
+			}
+		});
 	}
 
 	@Override
 	public void update(Map<String, Map<String, Object>> updatesById) {
-		BulkRequestBuilder builder = client.prepareBulk();
-		for (var id : updatesById.keySet()) {
-			var update = updatesById.get(id);
-			builder.add(updateRequest(id, update, false));
-		}
-		client.bulk(builder.setRefreshPolicy(RefreshPolicy.IMMEDIATE).request()).actionGet();
+		measure(Operation.BULK, () -> {
+			try (var bulk = bulk(bulkOptions())) {
+				updatesById.forEach(bulk::update);
+			} finally {
+				refreshAfterBulk();
+			}
+		});
+	}
+
+	// runs the script on all documents that match the query, on the cluster
+	// instead of sending the ids back and forth
+	public ByQueryStatus update(SearchQuery searchQuery, String script, Map<String, Object> parameters) {
+		return update(searchQuery, script, parameters, new ByQueryOptions());
 	}
 
-	private UpdateRequest updateRequest(String id, Map<String, Object> content, boolean refresh) {
+	public ByQueryStatus update(SearchQuery searchQuery, String script, Map<String, Object> parameters,
+			ByQueryOptions options) {
+		return join(updateByQuery(searchQuery, script, parameters, options).result());
+	}
+
+	ByQueryTask updateByQuery(SearchQuery searchQuery, String script, Map<String, Object> parameters,
+			ByQueryOptions options) {
+		checkWritable();
+		var request = options.apply(new UpdateByQueryRequest(indexName))
+				.setQuery(Query.filter(searchQuery, this.options.coalesceNested()))
+				.setRouting(this.options.routing())
+				.setBatchSize(options.batchSize())
+				.setScript(new Script(ScriptType.INLINE, "painless", script, parameters))
+				.setRefresh(refreshPolicy() != RefreshPolicy.NONE);
+		var start = System.nanoTime();
+		return ByQuery.start(client, UpdateByQueryAction.INSTANCE, request, options, e -> {
+			written();
+			measured(Operation.UPDATE_BY_QUERY, start, 0, e);
+		});
+	}
+
+	UpdateRequest updateRequest(String id, Map<String, Object> content, RefreshPolicy refresh) {
+		checkWritable();
 		var builder = client.prepareUpdate(indexName, id);
 		builder.setDoc(content);
-		if (refresh) {
-			builder.setRefreshPolicy(RefreshPolicy.IMMEDIATE);
-		}
+		builder.setRouting(routing(id, content));
+		builder.setRefreshPolicy(refresh);
 		return builder.request();
 	}
 
-	private UpdateRequest updateRequest(String id, String script, Map<String, Object> parameters, boolean refresh) {
+	UpdateRequest updateRequest(String id, String script, Map<String, Object> parameters, RefreshPolicy refresh) {
+		checkWritable();
 		var builder = client.prepareUpdate(indexName, id);
 		builder.setScript(new Script(ScriptType.INLINE, "painless", script, parameters));
-		if (refresh) {
-			builder.setRefreshPolicy(RefreshPolicy.IMMEDIATE);
-		}
+		builder.setRouting(routing(id, null));
+		builder.setRefreshPolicy(refresh);
 		return builder.request();
 	}
 
 	@Override
 	public void remove(String id) {
-		client.delete(deleteRequest(id, true)).actionGet();
+		remove(id, refreshPolicy());
+	}
+
+	public void remove(String id, RefreshPolicy refresh) {
+		try {
+			measure(Operation.REMOVE, () -> client.delete(deleteRequest(id, refresh)).actionGet());
+		} finally {
+			written();
+		}
 	}
 
 	@Override
 	public void remove(Set<String> ids) {
-		var bulk = client.prepareBulk();
-		for (var id : ids) {
-			bulk.add(deleteRequest(id, false));
+		measure(Operation.BULK, () -> {
+			try (var bulk = bulk(bulkOptions())) {
+				ids.forEach(bulk::remove);
+			} finally {
+				refreshAfterBulk();
+			}
+		});
+	}
+
+	public ByQueryStatus remove(SearchQuery searchQuery) {
+		return remove(searchQuery, new ByQueryOptions());
+	}
+
+	public ByQueryStatus remove(SearchQuery searchQuery, ByQueryOptions options) {
+		return join(removeByQuery(searchQuery, options).result());
+	}
+
+	ByQueryTask removeByQuery(SearchQuery searchQuery, ByQueryOptions options) {
+		checkWritable();
+		var request = options.apply(new DeleteByQueryRequest(indexName))
+				.setQuery(Query.filter(searchQuery, this.options.coalesceNested()))
+				.setRouting(this.options.routing())
+				.setBatchSize(options.batchSize())
+				.setRefresh(refreshPolicy() != RefreshPolicy.NONE);
+		var start = System.nanoTime();
+		return ByQuery.start(client, DeleteByQueryAction.INSTANCE, request, options, e -> {
+			written();
+			measured(Operation.DELETE_BY_QUERY, start, 0, e);
+		});
+	}
+
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw Futures.unwrapped(e.getCause());
 		}
-		client.bulk(bulk.setRefreshPolicy(RefreshPolicy.IMMEDIATE).request()).actionGet();
 	}
 
-	private DeleteRequest deleteRequest(String id, boolean refresh) {
+	DeleteRequest deleteRequest(String id, RefreshPolicy refresh) {
+		checkWritable();
 		var builder = client.prepareDelete(indexName, id);
-		if (refresh) {
-			builder.setRefreshPolicy(RefreshPolicy.IMMEDIATE);
-		}
+		builder.setRouting(routing(id, null));
+		builder.setRefreshPolicy(refresh);
 		return builder.request();
 	}
 
 	@Override
 	public boolean has(String id) {
-		var builder = client.prepareGet(indexName, id);
-		var response = client.get(builder.request()).actionGet();
+		var response = measure(Operation.HAS, () -> client.get(hasRequest(id)).actionGet());
 		if (response == null)
 			return false;
 		return response.isExists();
@@ -181,21 +603,61 @@ public class OsClient implements SearchClient {
 
 	@Override
 	public Map<String, Object> get(String id) {
-		var builder = client.prepareGet(indexName, id);
-		var response = client.get(builder.request()).actionGet();
-		if (response == null)
+		return get(id, SourceFilter.ALL);
+	}
+
+	public Map<String, Object> get(String id, SourceFilter filter) {
+		return source(measure(Operation.GET, () -> client.get(getRequest(id, filter)).actionGet()));
+	}
+
+	GetRequest hasRequest(String id) {
+		return client.prepareGet(indexName, id)
+				.setRouting(routing(id, null))
+				.setFetchSource(false)
+				.request();
+	}
+
+	GetRequest getRequest(String id, SourceFilter filter) {
+		var request = client.prepareGet(indexName, id)
+				.setRouting(routing(id, null))
+				.request();
+		if (!filter.isAll()) {
+			request.fetchSourceContext(filter.context());
+		}
+		return request;
+	}
+
+	static Map<String, Object> source(GetResponse response) {
+		if (response == null || response.isSourceEmpty())
 			return null;
-		var source = response.getSource();
-		if (source == null || source.isEmpty())
+		var source = new SourceMap(response.getSourceAsBytesRef());
+		if (source.isEmpty())
 			return null;
 		return source;
 	}
 
 	@Override
 	public List<Map<String, Object>> get(Set<String> ids) {
+		return get(ids, SourceFilter.ALL);
+	}
+
+	public List<Map<String, Object>> get(Set<String> ids, SourceFilter filter) {
+		return sources(measure(Operation.GET, () -> client.multiGet(multiGetRequest(ids, filter)).actionGet()));
+	}
+
+	MultiGetRequest multiGetRequest(Set<String> ids, SourceFilter filter) {
 		var builder = client.prepareMultiGet();
-		builder.add(indexName, ids);
-		var response = client.multiGet(builder.request()).actionGet();
+		for (var id : ids) {
+			var item = new MultiGetRequest.Item(indexName, id).routing(routing(id, null));
+			if (!filter.isAll()) {
+				item.fetchSourceContext(filter.context());
+			}
+			builder.add(item);
+		}
+		return builder.request();
+	}
+
+	static List<Map<String, Object>> sources(MultiGetResponse response) {
 		if (response == null)
 			return null;
 		var results = new ArrayList<Map<String, Object>>();
@@ -204,8 +666,10 @@ public class OsClient implements SearchClient {
 			var resp = it.next().getResponse();
 			if (resp == null)
 				continue;
-			var source = resp.getSource();
-			if (source == null || source.isEmpty())
+			if (resp.isSourceEmpty())
+				continue;
+			var source = new SourceMap(resp.getSourceAsBytesRef());
+			if (source.isEmpty())
 				continue;
 			results.add(source);
 		}
@@ -214,30 +678,72 @@ public class OsClient implements SearchClient {
 
 	@Override
 	public void clear() {
-		var exists = client.admin().indices().prepareExists(indexName).execute().actionGet().isExists();
-		if (!exists)
+		measure(Operation.CLEAR, this::clearIndex);
+	}
+
+	// replaces the index with an empty copy that has the same settings and
+	// mapping; searches see the old index until the alias is switched
+	private void clearIndex() {
+		checkWritable();
+		var indices = Indices.resolve(client, indexName);
+		if (indices.length == 0)
 			return;
-		var mapping = client.admin().indices()
-				.prepareGetMappings(indexName).execute().actionGet()
-				.getMappings().get(indexName).getSourceAsMap();
-		client.admin().indices()
-				.delete(new DeleteIndexRequest(indexName)).actionGet();
-		var request = new CreateIndexRequest(indexName);
-		request.settings(Settings.builder().put("max_result_window", 2147483647).put("number_of_shards", 1));
-		client.admin().indices()
-				.create(request).actionGet();
-		var mappingRequest = Requests.putMappingRequest(indexName);
-		mappingRequest.source(mapping);
-		client.admin().indices()
-				.putMapping(mappingRequest).actionGet();
+		var index = Indices.versioned(indexName);
+		Indices.create(client, index, layout(Indices.settings(client, indices[0])),
+				Indices.mapping(client, indices[0]));
+		Indices.swap(client, indexName, indices, index);
+		written();
+	}
+
+	// writes through this client and its routed views are rejected while
+	// the rebuild is open: they would only reach the current index and be
+	// lost when the rebuild is committed; write to the rebuild instead
+	public IndexRebuild rebuild() {
+		synchronized (state) {
+			if (state.rebuilding)
+				throw new IllegalStateException("Index " + indexName + " is already being rebuilt");
+			state.rebuilding = true;
+		}
+		try {
+			return new IndexRebuild(this, client, indexName);
+		} catch (RuntimeException e) {
+			rebuilt();
+			throw e;
+		}
+	}
+
+	void rebuilt() {
+		state.rebuilding = false;
+	}
+
+	private void checkWritable() {
+		if (state.rebuilding)
+			throw new IllegalStateException("Index " + indexName
+					+ " is being rebuilt; write to the rebuild until it is committed or closed");
 	}
 
 	@Override
 	public void delete() {
-		var exists = client.admin().indices().prepareExists(indexName).execute().actionGet().isExists();
-		if (!exists)
+		measure(Operation.DELETE, this::deleteIndex);
+	}
+
+	private void deleteIndex() {
+		checkWritable();
+		var indices = Indices.resolve(client, indexName);
+		if (indices.length == 0)
 			return;
-		client.admin().indices().delete(new DeleteIndexRequest(indexName)).actionGet();
+		client.admin().indices().delete(new DeleteIndexRequest(indices)).actionGet();
+		written();
+	}
+
+	// the open bulk loads and rebuilds of the index of a client and its
+	// routed views
+	private static class IndexState {
+
+		private volatile int loads;
+		private Settings suspended;
+		private volatile boolean rebuilding;
+
 	}
 
 }
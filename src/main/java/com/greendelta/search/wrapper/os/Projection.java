@@ -0,0 +1,194 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opensearch.common.document.DocumentField;
+import org.opensearch.search.SearchHit;
+
+import com.greendelta.search.wrapper.SearchQuery;
+
+class Projection {
+
+	private final boolean fullResult;
+	private final Node[] nodes;
+
+	private Projection(boolean fullResult, Node[] nodes) {
+		this.fullResult = fullResult;
+		this.nodes = nodes;
+	}
+
+	static Projection of(SearchQuery searchQuery) {
+		if (searchQuery.getFullResult())
+			return new Projection(true, null);
+		if (searchQuery.getFields().isEmpty())
+			return new Projection(false, null);
+		var root = new Branch(null);
+		var elements = new LinkedHashMap<String, Elements>();
+		for (var field : searchQuery.getFields()) {
+			var name = field.name;
+			var dot = name.indexOf('.');
+			if (field.isArray && dot != -1) {
+				var key = name.substring(0, dot);
+				var group = elements.computeIfAbsent(key, Elements::new);
+				group.add(name.substring(dot + 1), name);
+				root.children.remove(key);
+				root.children.put(key, group);
+			} else if (field.isArray) {
+				root.children.put(name, new Value(name, name, true));
+			} else {
+				root.add(name.split("\\."), 0, name);
+			}
+		}
+		return new Projection(false, root.compile());
+	}
+
+	Map<String, Object> apply(SearchHit hit) {
+		if (fullResult)
+			return hit.hasSource() ? new SourceMap(hit.getSourceRef()) : null;
+		if (nodes == null)
+			return Collections.singletonMap("documentId", hit.getId());
+		var fields = hit.getFields();
+		var map = new HashMap<String, Object>(capacity(nodes.length));
+		for (var node : nodes) {
+			node.put(map, fields);
+		}
+		return map;
+	}
+
+	private static int capacity(int size) {
+		return (int) (size / 0.75f) + 1;
+	}
+
+	private static abstract class Node {
+
+		final String key;
+
+		Node(String key) {
+			this.key = key;
+		}
+
+		abstract boolean put(Map<String, Object> map, Map<String, DocumentField> fields);
+
+	}
+
+	private static class Value extends Node {
+
+		private final String field;
+		private final boolean array;
+
+		Value(String key, String field, boolean array) {
+			super(key);
+			this.field = field;
+			this.array = array;
+		}
+
+		@Override
+		boolean put(Map<String, Object> map, Map<String, DocumentField> fields) {
+			var field = fields.get(this.field);
+			if (field == null)
+				return false;
+			var values = field.getValues();
+			if (array) {
+				map.put(key, values);
+			} else {
+				map.put(key, !values.isEmpty() ? values.get(0) : null);
+			}
+			return true;
+		}
+
+	}
+
+	private static class Branch extends Node {
+
+		private final Map<String, Node> children = new LinkedHashMap<>();
+		private Node[] nodes;
+
+		Branch(String key) {
+			super(key);
+		}
+
+		private void add(String[] path, int index, String field) {
+			var key = path[index];
+			if (index == path.length - 1) {
+				children.remove(key);
+				children.put(key, new Value(key, field, false));
+				return;
+			}
+			var child = children.get(key);
+			if (!(child instanceof Branch)) {
+				children.remove(key);
+				child = new Branch(key);
+				children.put(key, child);
+			}
+			((Branch) child).add(path, index + 1, field);
+		}
+
+		private Node[] compile() {
+			for (var child : children.values()) {
+				if (child instanceof Branch branch) {
+					branch.nodes = branch.compile();
+				}
+			}
+			return children.values().toArray(new Node[children.size()]);
+		}
+
+		@Override
+		boolean put(Map<String, Object> map, Map<String, DocumentField> fields) {
+			var sub = new HashMap<String, Object>(capacity(nodes.length));
+			for (var node : nodes) {
+				node.put(sub, fields);
+			}
+			if (sub.isEmpty())
+				return false;
+			map.put(key, sub);
+			return true;
+		}
+
+	}
+
+	private static class Elements extends Node {
+
+		private final List<String> keys = new ArrayList<>();
+		private final List<String> fields = new ArrayList<>();
+
+		Elements(String key) {
+			super(key);
+		}
+
+		private void add(String key, String field) {
+			keys.add(key);
+			fields.add(field);
+		}
+
+		@Override
+		boolean put(Map<String, Object> map, Map<String, DocumentField> fields) {
+			List<Map<String, Object>> list = null;
+			for (var i = 0; i < this.fields.size(); i++) {
+				var field = fields.get(this.fields.get(i));
+				if (field == null)
+					continue;
+				var values = field.getValues();
+				if (list == null) {
+					list = new ArrayList<>(values.size());
+				}
+				for (var j = 0; j < values.size(); j++) {
+					if (j == list.size()) {
+						list.add(new HashMap<>(capacity(keys.size())));
+					}
+					list.get(j).put(keys.get(i), values.get(j));
+				}
+			}
+			if (list == null)
+				return false;
+			map.put(key, list);
+			return true;
+		}
+
+	}
+
+}
@@ -3,52 +3,155 @@ package com.greendelta.search.wrapper.os;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.lucene.search.join.ScoreMode;
 import org.opensearch.index.query.BoolQueryBuilder;
+import org.opensearch.index.query.MatchAllQueryBuilder;
+import org.opensearch.index.query.NestedQueryBuilder;
 import org.opensearch.index.query.QueryBuilder;
 import org.opensearch.index.query.QueryBuilders;
+import org.opensearch.index.query.RangeQueryBuilder;
+import org.opensearch.index.query.TermQueryBuilder;
+import org.opensearch.index.query.TermsQueryBuilder;
+import org.opensearch.index.query.WildcardQueryBuilder;
 import org.opensearch.index.query.functionscore.FunctionScoreQueryBuilder.FilterFunctionBuilder;
 import org.opensearch.index.query.functionscore.ScoreFunctionBuilders;
 
 import com.greendelta.search.wrapper.Conjunction;
 import com.greendelta.search.wrapper.MultiSearchFilter;
+import com.greendelta.search.wrapper.SearchFilterType;
 import com.greendelta.search.wrapper.SearchFilterValue;
 import com.greendelta.search.wrapper.SearchQuery;
 
 class Query {
 
 	static QueryBuilder create(SearchQuery searchQuery) {
+		return create(searchQuery, false);
+	}
+
+	static QueryBuilder create(SearchQuery searchQuery, boolean coalesceNested) {
+		var scored = !searchQuery.getScores().isEmpty() || !searchQuery.getFunctions().isEmpty();
+		return score(create(searchQuery, coalesceNested, scored), searchQuery);
+	}
+
+	// the same matches without any scoring, for requests that ignore scores
+	static QueryBuilder filter(SearchQuery searchQuery, boolean coalesceNested) {
+		var query = create(searchQuery, coalesceNested, false);
+		if (query instanceof MatchAllQueryBuilder)
+			return query;
+		return QueryBuilders.constantScoreQuery(query);
+	}
+
+	private static QueryBuilder create(SearchQuery searchQuery, boolean coalesceNested, boolean scored) {
 		var bool = QueryBuilders.boolQuery();
+		var nested = new HashMap<String, BoolQueryBuilder>();
 		searchQuery.getFilters().forEach(filter -> {
-			QueryBuilder query = create(filter.field, filter.conjunction, filter.values);
-			append(bool, query, Conjunction.AND);
+			var isFilter = !scored && isFilter(filter.values);
+			if (coalesceNested && filter.field.contains(".")) {
+				var path = filter.field.substring(0, filter.field.lastIndexOf("."));
+				var group = nested.computeIfAbsent(path, p -> QueryBuilders.boolQuery());
+				add(group, create(filter.field, filter.conjunction, filter.values, false), isFilter);
+			} else {
+				add(bool, create(filter.field, filter.conjunction, filter.values, true), isFilter);
+			}
 		});
 		searchQuery.getMultiFilters().forEach(filter -> {
 			QueryBuilder query = query(filter);
-			append(bool, query, Conjunction.AND);
+			add(bool, query, !scored && isFilter(filter.values));
 		});
+		coalesce(bool, nested);
+		bool.filter().sort(Comparator.comparingInt(Query::cost));
 		var query = simplify(bool);
 		if (query == null) {
 			query = QueryBuilders.matchAllQuery();
 		}
-		return score(query, searchQuery);
+		return query;
+	}
+
+	// clauses on the same nested path are joined in one nested query, so one
+	// nested object has to match all of them; deeper paths are added to the
+	// query of their parent path
+	private static void coalesce(BoolQueryBuilder bool, Map<String, BoolQueryBuilder> nested) {
+		while (!nested.isEmpty()) {
+			var path = nested.keySet().stream()
+					.max(Comparator.comparingLong(p -> p.chars().filter(c -> c == '.').count()))
+					.get();
+			var group = nested.remove(path);
+			group.filter().sort(Comparator.comparingInt(Query::cost));
+			var inner = simplify(group);
+			if (inner == null)
+				continue;
+			var isFilter = group.must().isEmpty() && group.should().isEmpty();
+			var query = QueryBuilders.nestedQuery(path, inner, isFilter ? ScoreMode.None : ScoreMode.Total);
+			if (!path.contains(".")) {
+				add(bool, query, isFilter);
+			} else {
+				var parent = path.substring(0, path.lastIndexOf("."));
+				add(nested.computeIfAbsent(parent, p -> QueryBuilders.boolQuery()), query, isFilter);
+			}
+		}
+	}
+
+	private static void add(BoolQueryBuilder bool, QueryBuilder query, boolean isFilter) {
+		if (isFilter) {
+			filter(bool, query);
+		} else {
+			append(bool, query, Conjunction.AND);
+		}
+	}
+
+	// clauses that do not contribute to the score can run in filter context,
+	// where they are cacheable
+	private static boolean isFilter(Set<SearchFilterValue> values) {
+		for (var value : values) {
+			if (value.boost != null)
+				return false;
+			if (value.type != SearchFilterType.TERM && value.type != SearchFilterType.RANGE
+					&& value.type != SearchFilterType.WILDCARD)
+				return false;
+		}
+		return true;
 	}
 
 	private static QueryBuilder create(String field, Conjunction conjunction, Set<SearchFilterValue> values) {
+		return create(field, conjunction, values, true);
+	}
+
+	private static QueryBuilder create(String field, Conjunction conjunction, Set<SearchFilterValue> values,
+			boolean nest) {
 		if (values.isEmpty())
 			return null;
 		var bool = QueryBuilders.boolQuery();
+		var terms = new ArrayList<Object>();
 		values.forEach(value -> {
-			var query = create(field, value);
+			if (conjunction == Conjunction.OR && isPlainTerm(value)) {
+				terms.addAll(toCollection(value.value));
+				return;
+			}
+			var query = create(field, value, nest);
 			append(bool, query, conjunction);
 		});
+		if (!terms.isEmpty()) {
+			// alternative terms on the same field are combined into one query
+			var query = terms(field, terms);
+			append(bool, nest && field.contains(".") ? nest(query, field) : query, conjunction);
+		}
 		return simplify(bool);
 	}
 
+	private static boolean isPlainTerm(SearchFilterValue value) {
+		if (value.type != SearchFilterType.TERM || value.boost != null)
+			return false;
+		var terms = toCollection(value.value);
+		return terms != null && !terms.isEmpty();
+	}
+
 	private static QueryBuilder query(MultiSearchFilter filter) {
 		if (filter.values.isEmpty())
 			return null;
@@ -60,6 +163,12 @@ class Query {
 		return simplify(bool);
 	}
 
+	private static void filter(BoolQueryBuilder boolQuery, QueryBuilder query) {
+		if (query == null)
+			return;
+		boolQuery.filter(query);
+	}
+
 	private static void append(BoolQueryBuilder boolQuery, QueryBuilder query, Conjunction conjunction) {
 		if (query == null)
 			return;
@@ -71,6 +180,8 @@ class Query {
 	}
 
 	private static QueryBuilder simplify(BoolQueryBuilder query) {
+		if (!query.filter().isEmpty())
+			return query;
 		var queries = query.must().size() + query.should().size();
 		if (queries == 0)
 			return null;
@@ -81,11 +192,11 @@ class Query {
 		return query;
 	}
 
-	private static QueryBuilder create(String field, SearchFilterValue value) {
+	private static QueryBuilder create(String field, SearchFilterValue value, boolean nest) {
 		var builder = builder(field, value);
 		if (builder == null)
 			return null;
-		return decorate(builder, field, value);
+		return decorate(builder, field, value, nest);
 	}
 
 	private static QueryBuilder builder(String field, SearchFilterValue value) {
@@ -101,7 +212,10 @@ class Query {
 	}
 
 	private static QueryBuilder terms(String field, SearchFilterValue value) {
-		var terms = toCollection(value.value);
+		return terms(field, toCollection(value.value));
+	}
+
+	private static QueryBuilder terms(String field, List<Object> terms) {
 		if (terms.size() == 1)
 			return QueryBuilders.termQuery(field, terms.get(0));
 		return QueryBuilders.termsQuery(field, terms);
@@ -143,13 +257,13 @@ class Query {
 				.collect(Collectors.toList());
 	}
 
-	private static QueryBuilder decorate(QueryBuilder query, String field, SearchFilterValue value) {
+	private static QueryBuilder decorate(QueryBuilder query, String field, SearchFilterValue value, boolean nest) {
 		if (query == null)
 			return null;
 		if (value.boost != null) {
 			query = query.boost(value.boost);
 		}
-		if (field.contains(".")) {
+		if (nest && field.contains(".")) {
 			query = nest(query, field);
 		}
 		return query;
@@ -164,6 +278,21 @@ class Query {
 		return query;
 	}
 
+	// cheap clauses first, block joins and pattern matching last
+	private static int cost(QueryBuilder query) {
+		if (query instanceof TermQueryBuilder || query instanceof TermsQueryBuilder)
+			return 0;
+		if (query instanceof RangeQueryBuilder)
+			return 1;
+		if (query instanceof BoolQueryBuilder)
+			return 2;
+		if (query instanceof NestedQueryBuilder)
+			return 3;
+		if (query instanceof WildcardQueryBuilder)
+			return 4;
+		return 5;
+	}
+
 	private static QueryBuilder score(QueryBuilder query, SearchQuery searchQuery) {
 		if (searchQuery.getScores().isEmpty())
 			return query;
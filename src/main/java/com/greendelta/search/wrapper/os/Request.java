@@ -1,23 +1,66 @@
 package com.greendelta.search.wrapper.os;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.opensearch.action.admin.indices.mapping.get.GetFieldMappingsRequestBuilder;
+import org.opensearch.action.admin.indices.mapping.get.GetFieldMappingsResponse;
+import org.opensearch.action.search.CreatePitAction;
+import org.opensearch.action.search.CreatePitRequest;
+import org.opensearch.action.search.CreatePitResponse;
+import org.opensearch.action.search.DeletePitAction;
+import org.opensearch.action.search.DeletePitRequest;
+import org.opensearch.action.search.DeletePitResponse;
+import org.opensearch.action.search.SearchRequest;
 import org.opensearch.action.search.SearchRequestBuilder;
+import org.opensearch.action.search.SearchResponse;
 import org.opensearch.client.Client;
+import org.opensearch.common.unit.TimeValue;
 import org.opensearch.index.query.QueryBuilder;
 import org.opensearch.search.aggregations.AggregationBuilder;
+import org.opensearch.search.builder.PointInTimeBuilder;
+import org.opensearch.search.slice.SliceBuilder;
+import org.opensearch.search.sort.FieldSortBuilder;
 import org.opensearch.search.sort.SortOrder;
 
+import com.greendelta.search.wrapper.os.Instrumentation.SearchStats;
 import com.greendelta.search.wrapper.os.Search.OsRequest;
+import com.greendelta.search.wrapper.os.Search.OsResponse;
 
 class Request implements OsRequest {
 
+	private static final TimeValue KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+	private final Client client;
+	private final String indexName;
 	private final SearchRequestBuilder request;
+	private final Instrumentation instrumentation;
+	private final LongAdder requests;
+	private String routing;
+	private String pitId;
+	private boolean pitOwner;
 
-	Request(Client client, String indexName) {
+	Request(Client client, String indexName, Instrumentation instrumentation) {
+		this.client = client;
+		this.indexName = indexName;
+		this.instrumentation = instrumentation;
+		this.requests = new LongAdder();
 		request = client.prepareSearch(indexName);
 	}
 
+	// copies count their requests for the request they were copied from
+	private Request(Request parent) {
+		this.client = parent.client;
+		this.indexName = parent.indexName;
+		this.instrumentation = parent.instrumentation;
+		this.requests = parent.requests;
+		this.pitId = parent.pitId;
+		this.routing = parent.routing;
+		request = client.prepareSearch(indexName)
+				.setSource(parent.request.request().source().shallowCopy())
+				.setRouting(parent.request.request().routing());
+	}
+
 	@Override
 	public void setFrom(int from) {
 		request.setFrom(from);
@@ -48,9 +91,190 @@ class Request implements OsRequest {
 		request.addFetchField(field);
 	}
 
+	@Override
+	public void addDocValueField(String field) {
+		request.addDocValueField(field);
+	}
+
+	@Override
+	public void addStoredField(String field) {
+		request.addStoredField(field);
+	}
+
+	@Override
+	public void setFetchSource(boolean fetch) {
+		request.setFetchSource(fetch);
+	}
+
+	@Override
+	public void setFetchSource(String[] includes, String[] excludes) {
+		request.setFetchSource(includes, excludes);
+	}
+
+	@Override
+	public void setTrackTotalHits(boolean track) {
+		request.setTrackTotalHits(track);
+	}
+
+	@Override
+	public void setRouting(String routing) {
+		this.routing = routing;
+		if (pitId == null) {
+			request.setRouting(routing);
+		}
+	}
+
+	@Override
+	public void setSearchAfter(Object[] values) {
+		request.searchAfter(values);
+	}
+
+	@Override
+	public void openPointInTime() {
+		if (pitId != null)
+			return;
+		var pit = pitRequest();
+		opened(client.execute(CreatePitAction.INSTANCE, pit).actionGet());
+	}
+
+	@Override
+	public void closePointInTime() {
+		if (pitId == null || !pitOwner)
+			return;
+		client.execute(DeletePitAction.INSTANCE, new DeletePitRequest(pitId)).actionGet();
+		pitId = null;
+		pitOwner = false;
+	}
+
+	@Override
+	public CompletableFuture<Void> openPointInTimeAsync() {
+		if (pitId != null)
+			return Futures.done();
+		var pit = pitRequest();
+		return Futures.<CreatePitResponse> of(listener -> client.execute(CreatePitAction.INSTANCE, pit, listener))
+				.thenAccept(this::opened);
+	}
+
+	@Override
+	public CompletableFuture<Void> closePointInTimeAsync() {
+		if (pitId == null || !pitOwner)
+			return Futures.done();
+		var pit = new DeletePitRequest(pitId);
+		pitId = null;
+		pitOwner = false;
+		return Futures.<DeletePitResponse> ofVoid(
+				listener -> client.execute(DeletePitAction.INSTANCE, pit, listener));
+	}
+
+	@Override
+	public String dateFormat(String field) {
+		return Indices.dateFormat(fieldMapping(field).execute().actionGet(), field);
+	}
+
+	@Override
+	public CompletableFuture<String> dateFormatAsync(String field) {
+		var request = fieldMapping(field);
+		return Futures.<GetFieldMappingsResponse> of(request::execute)
+				.thenApply(response -> Indices.dateFormat(response, field));
+	}
+
+	private GetFieldMappingsRequestBuilder fieldMapping(String field) {
+		return client.admin().indices().prepareGetFieldMappings(indexName).setFields(field).includeDefaults(true);
+	}
+
+	@Override
+	public Request copy() {
+		return new Request(this);
+	}
+
+	@Override
+	public Request slice(int id, int max) {
+		var slice = copy();
+		slice.request.slice(new SliceBuilder(id, max));
+		return slice;
+	}
+
+	private CreatePitRequest pitRequest() {
+		var pit = new CreatePitRequest(KEEP_ALIVE, false, indexName);
+		pit.setRouting(routing);
+		return pit;
+	}
+
+	private void opened(CreatePitResponse response) {
+		setPointInTime(response.getId());
+		pitOwner = true;
+		if (response.getTotalShards() > 1) {
+			breakShardTies();
+		}
+	}
+
+	// _doc is the fallback tiebreaker of Search.setupSorting when no
+	// tiebreaker field is configured; it only orders the hits within a
+	// shard, so hits of different shards that tie at a page boundary would
+	// be skipped by search_after. _id makes the order total again.
+	private void breakShardTies() {
+		var sorts = request.request().source().sorts();
+		if (sorts == null || sorts.isEmpty())
+			return;
+		var last = sorts.get(sorts.size() - 1);
+		if (last instanceof FieldSortBuilder field && "_doc".equals(field.getFieldName())) {
+			request.addSort("_id", SortOrder.ASC);
+		}
+	}
+
+	// the routing of a point in time search is fixed when it is opened
+	private void setPointInTime(String id) {
+		pitId = id;
+		request.setRouting((String) null);
+		request.setPointInTime(new PointInTimeBuilder(id).setKeepAlive(KEEP_ALIVE));
+	}
+
+	SearchRequest searchRequest() {
+		return request.request();
+	}
+
+	long requests() {
+		return requests.sum();
+	}
+
 	@Override
 	public Response execute() throws IOException {
-		return new Response(request.execute().actionGet());
+		var start = System.nanoTime();
+		var response = request.execute().actionGet();
+		measured(start, response);
+		return toResponse(response);
+	}
+
+	@Override
+	public CompletableFuture<OsResponse> executeAsync() {
+		var start = System.nanoTime();
+		return Futures.<SearchResponse> of(request::execute).thenApply(response -> {
+			measured(start, response);
+			return toResponse(response);
+		});
+	}
+
+	void measured(long start, SearchResponse response) {
+		requests.increment();
+		if (instrumentation == Instrumentation.NONE)
+			return;
+		var hits = response.getHits().getHits();
+		var bytes = 0l;
+		for (var hit : hits) {
+			var source = hit.getSourceRef();
+			if (source != null) {
+				bytes += source.length();
+			}
+		}
+		instrumentation.onSearch(new SearchStats(System.nanoTime() - start, response.getTook().millis(),
+				hits.length, bytes, response.getFailedShards(), response.isTimedOut()));
+	}
+
+	private Response toResponse(SearchResponse response) {
+		if (pitId != null && response.pointInTimeId() != null && !pitId.equals(response.pointInTimeId())) {
+			setPointInTime(response.pointInTimeId());
+		}
+		return new Response(response);
 	}
 
 }
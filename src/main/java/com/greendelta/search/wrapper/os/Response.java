@@ -29,7 +29,8 @@ class Response implements OsResponse {
 
 	@Override
 	public long getTotalHits() {
-		return response.getHits().getTotalHits().value;
+		var total = response.getHits().getTotalHits();
+		return total != null ? total.value : response.getHits().getHits().length;
 	}
 
 	@Override
@@ -1,12 +1,15 @@
 package com.greendelta.search.wrapper.os;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.opensearch.search.aggregations.Aggregation;
+import org.opensearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.opensearch.search.aggregations.bucket.nested.Nested;
 import org.opensearch.search.aggregations.bucket.nested.ParsedNested;
-import org.opensearch.search.aggregations.bucket.nested.ParsedReverseNested;
+import org.opensearch.search.aggregations.bucket.nested.ReverseNested;
 import org.opensearch.search.aggregations.bucket.terms.DoubleTerms;
 import org.opensearch.search.aggregations.bucket.terms.LongTerms;
 import org.opensearch.search.aggregations.bucket.terms.StringTerms;
@@ -43,12 +46,40 @@ class Result {
 	}
 
 	private static AggregationResult addAggregation(OsResponse response, Aggregation aggregation) {
-		var builder = new AggregationResultBuilder();
-		builder.name(aggregation.getName()).type(mapType(aggregation.getType()));
+		var builder = builder(aggregation.getName(), mapType(aggregation.getType()));
 		putEntries(response, aggregation, builder);
 		return builder.build();
 	}
 
+	static AggregationResultBuilder builder(String name, SearchFilterType type) {
+		return new AggregationResultBuilder().name(name).type(type);
+	}
+
+	static CompositeAggregation composite(OsResponse response) {
+		return composite(response.getAggregations());
+	}
+
+	private static CompositeAggregation composite(List<Aggregation> aggregations) {
+		for (var aggregation : aggregations) {
+			if (aggregation instanceof CompositeAggregation composite)
+				return composite;
+			if (aggregation instanceof Nested nested)
+				return composite(nested.getAggregations().asList());
+		}
+		return null;
+	}
+
+	static long putEntries(CompositeAggregation aggregation, String source, AggregationResultBuilder builder) {
+		var totalCount = 0l;
+		for (var bucket : aggregation.getBuckets()) {
+			var key = String.valueOf(bucket.getKey().get(source));
+			var count = getCount(bucket.getDocCount(), bucket.getAggregations().asList());
+			builder.addEntry(new AggregationResultEntry(key, count));
+			totalCount += count;
+		}
+		return totalCount;
+	}
+
 	private static SearchFilterType mapType(String type) {
 		if (type == null)
 			return null;
@@ -84,11 +115,50 @@ class Result {
 
 	private static long getCount(long bucketCount, List<Aggregation> aggregations) {
 		for (var aggregation : aggregations)
-			if (aggregation instanceof ParsedReverseNested nested)
+			if (aggregation instanceof ReverseNested nested)
 				return nested.getDocCount();
 		return bucketCount;
 	}
 
+	// a copy that shares no mutable hit data with the original
+	static SearchResult<Map<String, Object>> copy(SearchResult<Map<String, Object>> result) {
+		var copy = new SearchResult<Map<String, Object>>();
+		for (var document : result.data) {
+			copy.data.add(copyMap(document));
+		}
+		copy.aggregations.addAll(result.aggregations);
+		copy.resultInfo.count = result.resultInfo.count;
+		copy.resultInfo.totalCount = result.resultInfo.totalCount;
+		copy.resultInfo.currentPage = result.resultInfo.currentPage;
+		copy.resultInfo.pageSize = result.resultInfo.pageSize;
+		copy.resultInfo.pageCount = result.resultInfo.pageCount;
+		return copy;
+	}
+
+	private static Map<String, Object> copyMap(Map<String, Object> map) {
+		if (map == null)
+			return null;
+		if (map instanceof SourceMap source)
+			return source.copy();
+		var copy = new LinkedHashMap<String, Object>(map.size() * 4 / 3 + 1);
+		map.forEach((key, value) -> copy.put(key, copyValue(value)));
+		return copy;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object copyValue(Object value) {
+		if (value instanceof Map<?, ?> map)
+			return copyMap((Map<String, Object>) map);
+		if (value instanceof List<?> list) {
+			var copy = new ArrayList<Object>(list.size());
+			for (var element : list) {
+				copy.add(copyValue(element));
+			}
+			return copy;
+		}
+		return value;
+	}
+
 	static void extend(SearchResult<Map<String, Object>> result, long totalHits, SearchQuery searchQuery) {
 		result.resultInfo.totalCount = totalHits;
 		result.resultInfo.currentPage = searchQuery.getPage();
@@ -0,0 +1,39 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.Map;
+
+// derives the routing key of a document, so that documents with the same
+// key are stored on the same shard; content is null for requests that only
+// have the id (get, delete, script updates) and a null key routes by id
+@FunctionalInterface
+public interface Routing {
+
+	Routing NONE = (id, content) -> null;
+
+	String of(String id, Map<String, Object> content);
+
+	// the value of a field of the document; requests without the field, like
+	// get and delete, are rejected and need a routed client
+	static Routing field(String field) {
+		return new Field(field);
+	}
+
+	// the part of the id before the separator, e.g. the tenant of "tenant/id"
+	static Routing prefix(char separator) {
+		return (id, content) -> {
+			var i = id.indexOf(separator);
+			return i > 0 ? id.substring(0, i) : null;
+		};
+	}
+
+	record Field(String name) implements Routing {
+
+		@Override
+		public String of(String id, Map<String, Object> content) {
+			var value = content != null ? content.get(name) : null;
+			return value != null ? value.toString() : null;
+		}
+
+	}
+
+}
@@ -1,73 +1,94 @@
 package com.greendelta.search.wrapper.os;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.opensearch.script.ScriptType;
+
 import com.greendelta.search.wrapper.score.Case;
 import com.greendelta.search.wrapper.score.Comparator;
 import com.greendelta.search.wrapper.score.Score;
 
 class Script {
 
-	static String from(Score score) {
-		var dWeight = score.getDefaultWeight();
+	// all literal values are passed as parameters, so the script source only
+	// depends on the shape of the score and is compiled once by the cluster
+	static org.opensearch.script.Script from(Score score) {
+		var params = new Params();
+		var source = source(score, params);
+		return new org.opensearch.script.Script(ScriptType.INLINE, "painless", source,
+				Collections.singletonMap("p", params.values));
+	}
+
+	private static String source(Score score, Params params) {
 		if (score.getCases().length == 0)
-			return "return " + dWeight + ";";
+			return "return " + params.add(score.getDefaultWeight()) + ";";
 		var s = getMethods(score);
 		s += "def[] fieldValues = new def[" + score.fields.size() + "];";
 		s += "def[] values = new def[" + score.fields.size() + "];";
 		for (var i = 0; i < score.fields.size(); i++) {
 			var field = score.fields.get(i);
-			var escaper = field.value instanceof String ? "\"" : "";
-			var numDef = field.value instanceof Long ? "L" : "";
 			s += "fieldValues[" + i + "] = doc['" + field.name + "'].getValue();";
 			if (field.lowerLimit != null) {
-				s += "if (fieldValues[" + i + "] < " + field.lowerLimit + ") { return " + dWeight + "; }";
+				s += "if (fieldValues[" + i + "] < " + params.add(field.lowerLimit) + ") { return "
+						+ params.add(score.getDefaultWeight()) + "; }";
 			}
 			if (field.upperLimit != null) {
-				s += "if (fieldValues[" + i + "] >  " + field.upperLimit + ") { return " + dWeight + "; }";
+				s += "if (fieldValues[" + i + "] >  " + params.add(field.upperLimit) + ") { return "
+						+ params.add(score.getDefaultWeight()) + "; }";
 			}
-			s += "values[" + i + "] = " + escaper + "" + field.value + "" + escaper + numDef + ";";
+			s += "values[" + i + "] = " + params.add(field.value) + ";";
 		}
-		s += cases(score);
+		s += cases(score, params);
 		return s;
 	}
 
-	private static String cases(Score score) {
+	private static String cases(Score score, Params params) {
 		var s = "";
 		var hadElse = false;
 		for (var c : score.getCases()) {
 			if (!c.conditions.isEmpty()) {
-				s += conditions(c);
+				s += conditions(c, params);
 			} else {
-				s += "return " + c.weight + ";";
+				s += "return " + params.add(c.weight) + ";";
 				hadElse = true;
 				break;
 			}
 		}
 		if (!hadElse) {
-			s += "return " + score.getDefaultWeight() + ";"; // default case
+			s += "return " + params.add(score.getDefaultWeight()) + ";"; // default case
 		}
 		return s;
 	}
 
-	private static String conditions(Case scoreCase) {
+	private static String conditions(Case scoreCase, Params params) {
 		var s = "if (";
 		var firstCondition = true;
 		for (var con : scoreCase.conditions) {
 			if (!firstCondition) {
 				s += " && ";
 			}
+			var value1 = operand(con.value1, params);
+			var value2 = operand(con.value2, params);
 			if (con.comparator == Comparator.EQUALS) {
-				s += "(" + con.value1 + ") != null && " + (con.value1) + ".equals(" + con.value2 + ")";
+				s += "(" + value1 + ") != null && " + (value1) + ".equals(" + value2 + ")";
 			} else {
-				var numDef1 = con.value1 instanceof Long ? "L" : "";
-				var numDef2 = con.value2 instanceof Long ? "L" : "";
-				s += con.value1 + numDef1 + " " + toString(con.comparator) + " " + con.value2 + numDef2;
+				s += value1 + " " + toString(con.comparator) + " " + value2;
 			}
 			firstCondition = false;
 		}
-		s += ") { return " + scoreCase.weight + "; } ";
+		s += ") { return " + params.add(scoreCase.weight) + "; } ";
 		return s;
 	}
 
+	// numbers are literals, everything else is part of the script expression
+	private static String operand(Object value, Params params) {
+		if (value instanceof Number)
+			return params.add(value);
+		return String.valueOf(value);
+	}
+
 	private static String getDistanceMethod() {
 		var s = "double toRad(double degree) { return degree * Math.PI / 180; }";
 		s += "double getDistance(double lat1, double lon1, double lat2, double lon2) { ";
@@ -104,4 +125,26 @@ class Script {
 		};
 	}
 
+	private static class Params {
+
+		private final List<Object> values = new ArrayList<>();
+
+		// returns the script expression that reads the value with the type
+		// the former literal had, JSON parameters lose e.g. the long type
+		private String add(Object value) {
+			var param = "params.p[" + values.size() + "]";
+			values.add(value);
+			if (value instanceof Long)
+				return "((Number) " + param + ").longValue()";
+			if (value instanceof Integer)
+				return "((Number) " + param + ").intValue()";
+			if (value instanceof Double)
+				return "((Number) " + param + ").doubleValue()";
+			if (value instanceof Float)
+				return "((Number) " + param + ").floatValue()";
+			return param;
+		}
+
+	}
+
 }
@@ -1,13 +1,19 @@
 package com.greendelta.search.wrapper.os;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.HashMap;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -21,126 +27,325 @@ import org.opensearch.search.sort.SortOrder;
 import com.greendelta.search.wrapper.SearchQuery;
 import com.greendelta.search.wrapper.SearchResult;
 import com.greendelta.search.wrapper.SearchSorting;
+import com.greendelta.search.wrapper.aggregations.TermsAggregation;
+import com.greendelta.search.wrapper.aggregations.results.AggregationResult;
 
 class Search {
 
 	private static final Logger log = LogManager.getLogger(Search.class);
 
 	static SearchResult<Map<String, Object>> run(OsRequest request, SearchQuery searchQuery) {
-		prepare(request, searchQuery);
+		return run(request, searchQuery, new SearchOptions());
+	}
+
+	static SearchResult<Map<String, Object>> run(OsRequest request, SearchQuery searchQuery, SearchOptions options) {
 		try {
-			var result = new SearchResult<Map<String, Object>>();
-			OsResponse response = null;
-			var doContinue = true;
-			var totalHits = 0l;
-			while (doContinue) {
-				if (!searchQuery.isPaged()) {
-					request.setFrom(result.data.size());
-				}
-				response = request.execute();
-				for (var hit : response.getHits()) {
-					if (searchQuery.getFullResult()) {
-						result.data.add(hit.getSourceAsMap());
-					} else if (searchQuery.getFields().isEmpty()) {
-						result.data.add(Collections.singletonMap("documentId", hit.getId()));
-					} else {
-						var fields = hit.getFields();
-						var map = new HashMap<String, Object>();
-						for (var field : searchQuery.getFields()) {
-							if (!fields.containsKey(field.name))
-								continue;
-							putFieldValue(map, field.name, fields.get(field.name).getValues(), field.isArray);
-						}
-						result.data.add(map);
-					}
+			return execute(request, searchQuery, options);
+		} catch (Exception e) {
+			return failed(e, searchQuery);
+		}
+	}
+
+	static SearchResult<Map<String, Object>> execute(OsRequest request, SearchQuery searchQuery,
+			SearchOptions options) throws IOException {
+		prepare(request, searchQuery, options);
+		var result = new SearchResult<Map<String, Object>>();
+		var projection = Projection.of(searchQuery);
+		Consumer<OsResponse> consumer = response -> {
+			for (var hit : response.getHits()) {
+				result.data.add(projection.apply(hit));
+			}
+		};
+		var totalHits = 0l;
+		if (searchQuery.isPaged() && options.compositeSize() == 0) {
+			setupAggregations(request, searchQuery);
+			totalHits = traverse(request, searchQuery, consumer.andThen(
+					response -> result.aggregations.addAll(Result.aggregations(response))));
+		} else {
+			// aggregations are evaluated once on the same point in time,
+			// the hit pages are fetched without them
+			if (!searchQuery.isPaged()) {
+				request.openPointInTime();
+			}
+			try {
+				if (!searchQuery.getAggregations().isEmpty()) {
+					aggregate(request, searchQuery, options, result);
 				}
-				totalHits = response.getTotalHits();
-				doContinue = !searchQuery.isPaged() && result.data.size() != totalHits;
-				result.aggregations.addAll(Result.aggregations(response));
+				totalHits = traverse(request, searchQuery, options.slices(), consumer);
+			} finally {
+				request.closePointInTime();
 			}
+		}
+		result.resultInfo.count = result.data.size();
+		Result.extend(result, totalHits, searchQuery);
+		return result;
+	}
+
+	static SearchResult<Map<String, Object>> failed(Exception e, SearchQuery searchQuery) {
+		if (searchQuery.getThrowErrors())
+			throw new RuntimeException(e);
+		log.error("Error during search", e);
+		var result = new SearchResult<Map<String, Object>>();
+		Result.extend(result, 0, searchQuery);
+		return result;
+	}
+
+	static List<SearchResult<Map<String, Object>>> run(MultiRequest request, List<SearchQuery> searchQueries,
+			SearchOptions options) {
+		// only single page searches can be combined, all others are executed
+		// on their own after the multi search
+		var items = new OsRequest[searchQueries.size()];
+		for (var i = 0; i < items.length; i++) {
+			var searchQuery = searchQueries.get(i);
+			if (!searchQuery.isPaged() || options.compositeSize() > 0)
+				continue;
+			items[i] = prepare(request.add(), searchQuery, options);
+			setupAggregations(items[i], searchQuery);
+		}
+		request.setMaxConcurrentSearches(options.maxConcurrentSearches());
+		request.execute();
+		var results = new ArrayList<SearchResult<Map<String, Object>>>();
+		for (var i = 0; i < items.length; i++) {
+			var searchQuery = searchQueries.get(i);
+			results.add(items[i] != null
+					? collect(items[i], searchQuery)
+					: run(request.single(), searchQuery, options));
+		}
+		return results;
+	}
+
+	private static SearchResult<Map<String, Object>> collect(OsRequest request, SearchQuery searchQuery) {
+		try {
+			var response = request.execute();
+			var result = new SearchResult<Map<String, Object>>();
+			var projection = Projection.of(searchQuery);
+			for (var hit : response.getHits()) {
+				result.data.add(projection.apply(hit));
+			}
+			result.aggregations.addAll(Result.aggregations(response));
 			result.resultInfo.count = result.data.size();
-			Result.extend(result, totalHits, searchQuery);
+			Result.extend(result, response.getTotalHits(), searchQuery);
 			return result;
 		} catch (Exception e) {
-			if (searchQuery.getThrowErrors())
-				throw new RuntimeException(e);
-			log.error("Error during search", e);
-			var result = new SearchResult<Map<String, Object>>();
-			Result.extend(result, 0, searchQuery);
-			return result;
+			return failed(e, searchQuery);
 		}
 	}
 
-	@SuppressWarnings("unchecked")
-	private static void putFieldValue(Map<String, Object> map, String field, List<Object> values, boolean array) {
-		if (!field.contains(".")) {
-			if (array) {
-				map.put(field, values);
+	static SearchResult<Map<String, Object>> aggregate(OsRequest request, SearchQuery searchQuery,
+			SearchOptions options) throws IOException {
+		prepare(request, searchQuery, options);
+		var result = new SearchResult<Map<String, Object>>();
+		var totalHits = aggregate(request, searchQuery, options, result);
+		Result.extend(result, totalHits, searchQuery);
+		return result;
+	}
+
+	static SearchResult<Map<String, Object>> failedAggregation(Exception e, SearchQuery searchQuery) {
+		if (searchQuery.getThrowErrors())
+			throw new RuntimeException(e);
+		log.error("Error during aggregation", e);
+		var result = new SearchResult<Map<String, Object>>();
+		Result.extend(result, 0, searchQuery);
+		return result;
+	}
+
+	private static long aggregate(OsRequest request, SearchQuery searchQuery, SearchOptions options,
+			SearchResult<Map<String, Object>> result) throws IOException {
+		var aggregations = request.copy();
+		aggregations.setSize(0);
+		var composites = new ArrayList<TermsAggregation>();
+		for (var aggregation : searchQuery.getAggregations()) {
+			if (options.compositeSize() > 0 && aggregation instanceof TermsAggregation terms) {
+				composites.add(terms);
 			} else {
-				map.put(field, !values.isEmpty() ? values.get(0) : null);
+				aggregations.addAggregation(com.greendelta.search.wrapper.os.Aggregation.builder(aggregation));
 			}
-			return;
 		}
-		var first = field.substring(0, field.indexOf("."));
-		var rest = field.substring(field.indexOf(".") + 1);
-		if (array) {
-			var list = (List<Map<String, Object>>) map.computeIfAbsent(first,
-					k -> values.stream().map(v -> new HashMap<String, Object>()).collect(Collectors.toList()));
-			for (var i = 0; i < values.size(); i++) {
-				list.get(i).put(rest, values.get(i));
-			}
-		} else {
-			var subMap = (Map<String, Object>) map.computeIfAbsent(first, k -> new HashMap<>());
-			putFieldValue(subMap, rest, values, false);
+		var response = aggregations.execute();
+		result.aggregations.addAll(Result.aggregations(response));
+		for (var terms : composites) {
+			result.aggregations.add(composite(request, terms, options.compositeSize()));
 		}
+		return response.getTotalHits();
 	}
 
-	static Set<String> ids(OsRequest request, SearchQuery searchQuery) {
-		prepare(request, searchQuery);
+	private static AggregationResult composite(OsRequest request, TermsAggregation aggregation, int size)
+			throws IOException {
+		var builder = Result.builder(aggregation.name, TermsAggregation.TYPE);
+		var totalCount = 0;
+		var format = request.dateFormat(aggregation.field);
+		Map<String, Object> after = null;
+		do {
+			var page = request.copy();
+			page.setSize(0);
+			page.addAggregation(
+					com.greendelta.search.wrapper.os.Aggregation.compositeBuilder(aggregation, size, after, format));
+			var composite = Result.composite(page.execute());
+			if (composite == null)
+				break;
+			totalCount += Result.putEntries(composite, aggregation.name, builder);
+			after = composite.getBuckets().size() < size ? null : composite.afterKey();
+		} while (after != null);
+		return builder.totalCount(totalCount).build();
+	}
+
+	private static long traverse(OsRequest request, SearchQuery searchQuery, Slices slices,
+			Consumer<OsResponse> consumer) throws IOException {
+		if (searchQuery.isPaged() || !slices.isParallel())
+			return traverse(request, searchQuery, consumer);
+		request.openPointInTime();
 		try {
-			var ids = new HashSet<String>();
-			OsResponse response = null;
-			var doContinue = true;
+			var totalHits = new AtomicLong();
+			// the first failure stops the other slices at their next page
+			var failure = new AtomicReference<Throwable>();
+			var futures = new CompletableFuture<?>[slices.count()];
+			for (var i = 0; i < slices.count(); i++) {
+				var slice = request.slice(i, slices.count());
+				futures[i] = CompletableFuture.runAsync(() -> {
+					if (failure.get() != null)
+						return;
+					try {
+						totalHits.addAndGet(traverse(slice, searchQuery, response -> {
+							if (failure.get() != null)
+								throw new CancellationException();
+							synchronized (consumer) {
+								consumer.accept(response);
+							}
+						}));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}, slices.executor()).whenComplete((v, e) -> {
+					var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+					if (cause != null && !(cause instanceof CancellationException)) {
+						failure.compareAndSet(null, cause);
+					}
+				});
+			}
+			try {
+				CompletableFuture.allOf(futures).join();
+			} catch (CompletionException | CancellationException e) {
+				var cause = failure.get();
+				if (cause instanceof UncheckedIOException io)
+					throw io.getCause();
+				if (cause instanceof RuntimeException r)
+					throw r;
+				throw new RuntimeException(cause != null ? cause : e);
+			}
+			return totalHits.get();
+		} finally {
+			request.closePointInTime();
+		}
+	}
+
+	private static long traverse(OsRequest request, SearchQuery searchQuery, Consumer<OsResponse> consumer)
+			throws IOException {
+		try (var cursor = new Cursor(request, searchQuery)) {
 			var totalHits = 0l;
-			while (doContinue) {
-				if (!searchQuery.isPaged()) {
-					request.setFrom(ids.size());
-				}
-				response = request.execute();
-				for (var hit : response.getHits()) {
-					ids.add(hit.getId());
-				}
-				totalHits = response.getTotalHits();
-				doContinue = !searchQuery.isPaged() && ids.size() != totalHits;
+			OsResponse response = null;
+			while ((response = cursor.next()) != null) {
+				consumer.accept(response);
+				totalHits = searchQuery.isPaged()
+						? response.getTotalHits()
+						: totalHits + response.getHits().length;
 			}
+			return totalHits;
+		}
+	}
+
+	static Stream<Map<String, Object>> stream(OsRequest request, SearchQuery searchQuery, SearchOptions options,
+			Consumer<Throwable> onError) {
+		prepare(request, searchQuery, options);
+		var projection = Projection.of(searchQuery);
+		return new Cursor(request, searchQuery).hits(onError)
+				.map(projection::apply);
+	}
+
+	static Set<String> ids(OsRequest request, SearchQuery searchQuery, SearchOptions options) {
+		try {
+			var ids = new HashSet<String>();
+			ids(request, searchQuery, options, ids::add);
 			return ids;
 		} catch (Exception e) {
-			// TODO handle exception
-			return new HashSet<>();
+			return failedIds(e, searchQuery);
 		}
+	}
 
+	static Set<String> failedIds(Throwable e, SearchQuery searchQuery) {
+		if (searchQuery.getThrowErrors())
+			throw new RuntimeException(e);
+		log.error("Error during id search", e);
+		return new HashSet<>();
 	}
 
-	private static OsRequest prepare(OsRequest request, SearchQuery searchQuery) {
-		setupPaging(request, searchQuery);
-		setupSorting(request, searchQuery);
-		setupAggregations(request, searchQuery);
-		request.setQuery(Query.create(searchQuery));
-		if (!searchQuery.getFullResult()) {
-			for (var field : searchQuery.getFields()) {
-				request.addField(field.name);
+	static long ids(OsRequest request, SearchQuery searchQuery, SearchOptions options, Consumer<String> consumer)
+			throws IOException {
+		prepareIds(request, searchQuery, options);
+		return traverse(request, searchQuery, options.slices(), response -> {
+			for (var hit : response.getHits()) {
+				consumer.accept(hit.getId());
 			}
+		});
+	}
+
+	// only the ids are read, so neither _source, fields nor scores are
+	// needed; unpaged traversals visit the documents in index order
+	static OsRequest prepareIds(OsRequest request, SearchQuery searchQuery, SearchOptions options) {
+		setupPaging(request, searchQuery);
+		request.setFetchSource(false);
+		request.setRouting(options.routing());
+		if (searchQuery.isPaged()) {
+			setupSorting(request, searchQuery, options);
+			request.setQuery(Query.create(searchQuery, options.coalesceNested()));
+			return request;
 		}
+		request.setTrackTotalHits(false);
+		request.addSort("_doc", SortOrder.ASC);
+		if (options.tiebreaker() != null) {
+			request.addSort(options.tiebreaker(), SortOrder.ASC);
+		}
+		request.setQuery(Query.filter(searchQuery, options.coalesceNested()));
+		return request;
+	}
+
+	static OsRequest prepare(OsRequest request, SearchQuery searchQuery, SearchOptions options) {
+		setupPaging(request, searchQuery);
+		setupSorting(request, searchQuery, options);
+		request.setQuery(Query.create(searchQuery, options.coalesceNested()));
+		setupFields(request, searchQuery, options);
+		request.setRouting(options.routing());
 		return request;
 	}
 
+	private static void setupFields(OsRequest request, SearchQuery searchQuery, SearchOptions options) {
+		if (searchQuery.getFullResult()) {
+			var filter = options.sourceFilter();
+			if (!filter.isAll()) {
+				request.setFetchSource(filter.includes(), filter.excludes());
+			}
+			return;
+		}
+		if (searchQuery.getFields().isEmpty())
+			return;
+		// the mapped results are built from the hit fields only, so the
+		// _source is never sent back for field limited searches
+		request.setFetchSource(false);
+		for (var field : searchQuery.getFields()) {
+			switch (options.fieldRetrieval()) {
+				case DOC_VALUES -> request.addDocValueField(field.name);
+				case STORED -> request.addStoredField(field.name);
+				default -> request.addField(field.name);
+			}
+		}
+	}
+
 	private static void setupPaging(OsRequest request, SearchQuery searchQuery) {
 		var start = (searchQuery.getPage() - 1) * searchQuery.getPageSize();
-		if (start > 0) {
+		if (start > 0 && searchQuery.isPaged()) {
 			request.setFrom(start);
 		}
 		if (!searchQuery.isPaged()) {
-			request.setSize(10000);
+			request.setSize(Cursor.PAGE_SIZE);
 		} else {
 			if (searchQuery.getPageSize() > 0) {
 				request.setSize(searchQuery.getPageSize());
@@ -150,16 +355,28 @@ class Search {
 		}
 	}
 
-	private static void setupSorting(OsRequest request, SearchQuery searchQuery) {
+	private static void setupSorting(OsRequest request, SearchQuery searchQuery, SearchOptions options) {
 		for (var entry : searchQuery.getSortBy().entrySet()) {
 			var value = entry.getValue() == SearchSorting.ASC
 					? SortOrder.ASC
 					: SortOrder.DESC;
 			request.addSort(entry.getKey(), value);
 		}
+		if (searchQuery.isPaged())
+			return;
+		// search_after needs a total order, so unpaged traversals get a
+		// tiebreaker after the requested (or default score) sorting; _doc
+		// is followed by _id on multi shard indices, see Request
+		if (searchQuery.getSortBy().isEmpty()) {
+			request.addSort("_score", SortOrder.DESC);
+		}
+		var tiebreaker = options.tiebreaker() != null ? options.tiebreaker() : "_doc";
+		if (!searchQuery.getSortBy().containsKey(tiebreaker)) {
+			request.addSort(tiebreaker, SortOrder.ASC);
+		}
 	}
 
-	private static void setupAggregations(OsRequest request, SearchQuery searchQuery) {
+	static void setupAggregations(OsRequest request, SearchQuery searchQuery) {
 		for (var aggregation : searchQuery.getAggregations()) {
 			request.addAggregation(com.greendelta.search.wrapper.os.Aggregation.builder(aggregation));
 		}
@@ -179,8 +396,40 @@ class Search {
 
 		void addField(String field);
 
+		void addDocValueField(String field);
+
+		void addStoredField(String field);
+
+		void setFetchSource(boolean fetch);
+
+		void setFetchSource(String[] includes, String[] excludes);
+
+		void setTrackTotalHits(boolean track);
+
+		void setRouting(String routing);
+
+		void setSearchAfter(Object[] values);
+
+		void openPointInTime() throws IOException;
+
+		void closePointInTime();
+
+		String dateFormat(String field);
+
+		OsRequest copy();
+
+		OsRequest slice(int id, int max);
+
 		OsResponse execute() throws IOException;
 
+		CompletableFuture<Void> openPointInTimeAsync();
+
+		CompletableFuture<Void> closePointInTimeAsync();
+
+		CompletableFuture<String> dateFormatAsync(String field);
+
+		CompletableFuture<OsResponse> executeAsync();
+
 	}
 
 	interface OsResponse {
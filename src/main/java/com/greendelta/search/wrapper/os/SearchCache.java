@@ -0,0 +1,90 @@
+package com.greendelta.search.wrapper.os;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.greendelta.search.wrapper.SearchResult;
+
+public class SearchCache {
+
+	private final int maxEntries;
+	private final long ttl;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final AtomicLong generation = new AtomicLong();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public SearchCache(int maxEntries, Duration ttl) {
+		this.maxEntries = maxEntries;
+		this.ttl = ttl.toNanos();
+	}
+
+	SearchResult<Map<String, Object>> get(String key) {
+		synchronized (entries) {
+			var entry = entries.get(key);
+			if (entry != null && entry.expires < System.nanoTime()) {
+				entries.remove(key);
+				evictions.increment();
+				entry = null;
+			}
+			if (entry == null) {
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return Result.copy(entry.result);
+		}
+	}
+
+	long generation() {
+		return generation.get();
+	}
+
+	// results of searches that started before the last write are dropped
+	void put(String key, SearchResult<Map<String, Object>> result, long generation) {
+		synchronized (entries) {
+			if (generation != this.generation.get())
+				return;
+			entries.put(key, new Entry(Result.copy(result), System.nanoTime() + ttl));
+			var it = entries.entrySet().iterator();
+			while (entries.size() > maxEntries && it.hasNext()) {
+				it.next();
+				it.remove();
+				evictions.increment();
+			}
+		}
+	}
+
+	void invalidate() {
+		synchronized (entries) {
+			generation.incrementAndGet();
+			entries.clear();
+		}
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long misses() {
+		return misses.sum();
+	}
+
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private record Entry(SearchResult<Map<String, Object>> result, long expires) {
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.greendelta.search.wrapper.SearchResult;
+
+// identical searches that arrive while one of them is running wait for that
+// search instead of sending their own request; each caller gets a deep copy
+// of the result, so hits can be changed without affecting other callers
+public class SearchCoalescer {
+
+	private final Map<String, CompletableFuture<SearchResult<Map<String, Object>>>> running = new ConcurrentHashMap<>();
+	private final LongAdder executed = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+
+	CompletableFuture<SearchResult<Map<String, Object>>> run(String key,
+			Supplier<CompletableFuture<SearchResult<Map<String, Object>>>> search) {
+		var future = new CompletableFuture<SearchResult<Map<String, Object>>>();
+		var other = running.putIfAbsent(key, future);
+		if (other != null) {
+			coalesced.increment();
+			return other.thenApply(Result::copy);
+		}
+		executed.increment();
+		CompletableFuture<SearchResult<Map<String, Object>>> execution;
+		try {
+			execution = search.get();
+		} catch (RuntimeException e) {
+			execution = CompletableFuture.failedFuture(e);
+		}
+		execution.whenComplete((result, e) -> {
+			running.remove(key, future);
+			if (e != null) {
+				future.completeExceptionally(e);
+			} else {
+				future.complete(result);
+			}
+		});
+		return future.thenApply(Result::copy);
+	}
+
+	public long executed() {
+		return executed.sum();
+	}
+
+	public long coalesced() {
+		return coalesced.sum();
+	}
+
+	public int running() {
+		return running.size();
+	}
+
+}
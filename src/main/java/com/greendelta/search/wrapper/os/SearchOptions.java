@@ -0,0 +1,103 @@
+package com.greendelta.search.wrapper.os;
+
+public class SearchOptions {
+
+	private Slices slices = Slices.NONE;
+	private int compositeSize;
+	private int maxConcurrentSearches;
+	private boolean coalesceNested;
+	private SourceFilter sourceFilter = SourceFilter.ALL;
+	private FieldRetrieval fieldRetrieval = FieldRetrieval.FETCH;
+	private String routing;
+	private String tiebreaker;
+
+	public SearchOptions slices(Slices slices) {
+		this.slices = slices != null ? slices : Slices.NONE;
+		return this;
+	}
+
+	Slices slices() {
+		return slices;
+	}
+
+	public SearchOptions compositeAggregations(int pageSize) {
+		this.compositeSize = Math.max(0, pageSize);
+		return this;
+	}
+
+	int compositeSize() {
+		return compositeSize;
+	}
+
+	public SearchOptions maxConcurrentSearches(int maxConcurrentSearches) {
+		this.maxConcurrentSearches = Math.max(0, maxConcurrentSearches);
+		return this;
+	}
+
+	int maxConcurrentSearches() {
+		return maxConcurrentSearches;
+	}
+
+	public SearchOptions coalesceNested(boolean coalesceNested) {
+		this.coalesceNested = coalesceNested;
+		return this;
+	}
+
+	boolean coalesceNested() {
+		return coalesceNested;
+	}
+
+	public SearchOptions sourceFilter(SourceFilter sourceFilter) {
+		this.sourceFilter = sourceFilter != null ? sourceFilter : SourceFilter.ALL;
+		return this;
+	}
+
+	SourceFilter sourceFilter() {
+		return sourceFilter;
+	}
+
+	public SearchOptions fieldRetrieval(FieldRetrieval fieldRetrieval) {
+		this.fieldRetrieval = fieldRetrieval != null ? fieldRetrieval : FieldRetrieval.FETCH;
+		return this;
+	}
+
+	FieldRetrieval fieldRetrieval() {
+		return fieldRetrieval;
+	}
+
+	// a unique field with doc values that completes the sort order of
+	// unpaged traversals; without it, hits are ordered by _doc, and by _id
+	// on multi shard indices, which loads the ids as fielddata onto the heap
+	public SearchOptions tiebreaker(String field) {
+		this.tiebreaker = field;
+		return this;
+	}
+
+	String tiebreaker() {
+		return tiebreaker;
+	}
+
+	// set for the routed views of a client only, see OsClient.routed
+	SearchOptions routing(String routing) {
+		this.routing = routing;
+		return this;
+	}
+
+	String routing() {
+		return routing;
+	}
+
+	SearchOptions copy() {
+		var copy = new SearchOptions();
+		copy.slices = slices;
+		copy.compositeSize = compositeSize;
+		copy.maxConcurrentSearches = maxConcurrentSearches;
+		copy.coalesceNested = coalesceNested;
+		copy.sourceFilter = sourceFilter;
+		copy.fieldRetrieval = fieldRetrieval;
+		copy.routing = routing;
+		copy.tiebreaker = tiebreaker;
+		return copy;
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public record Slices(int count, Executor executor) {
+
+	// slices block on search requests, so they get their own bounded pool
+	// instead of the common pool
+	private static final Executor EXECUTOR = pool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+
+	public static final Slices NONE = new Slices(1, EXECUTOR);
+
+	public static Slices of(int count) {
+		return new Slices(count, EXECUTOR);
+	}
+
+	boolean isParallel() {
+		return count > 1;
+	}
+
+	private static Executor pool(int threads) {
+		var counter = new AtomicInteger();
+		var pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				runnable -> {
+					var thread = new Thread(runnable, "search-slice-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+}
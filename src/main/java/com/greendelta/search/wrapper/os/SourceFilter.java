@@ -0,0 +1,32 @@
+package com.greendelta.search.wrapper.os;
+
+import java.util.Arrays;
+
+import org.opensearch.search.fetch.subphase.FetchSourceContext;
+
+public record SourceFilter(String[] includes, String[] excludes) {
+
+	public static final SourceFilter ALL = new SourceFilter(null, null);
+
+	public static SourceFilter include(String... fields) {
+		return new SourceFilter(fields, null);
+	}
+
+	public static SourceFilter exclude(String... fields) {
+		return new SourceFilter(null, fields);
+	}
+
+	boolean isAll() {
+		return (includes == null || includes.length == 0) && (excludes == null || excludes.length == 0);
+	}
+
+	FetchSourceContext context() {
+		return new FetchSourceContext(true, includes, excludes);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(includes) + " " + Arrays.toString(excludes);
+	}
+
+}
@@ -0,0 +1,174 @@
+package com.greendelta.search.wrapper.os;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.opensearch.common.xcontent.XContentHelper;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.xcontent.DeprecationHandler;
+import org.opensearch.core.xcontent.MediaType;
+import org.opensearch.core.xcontent.MediaTypeRegistry;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
+import org.opensearch.core.xcontent.XContentParser;
+import org.opensearch.core.xcontent.XContentParser.Token;
+
+// a document source that is only parsed when it is read: single keys are
+// parsed on their own, everything else parses the whole document once.
+// Writes, entry views and nested maps or lists that were handed out mark the
+// map as modified; bytes() then serializes the parsed map
+public class SourceMap extends AbstractMap<String, Object> {
+
+	private final BytesReference source;
+	private MediaType type;
+	private Map<String, Object> keys;
+	private Map<String, Object> map;
+	private boolean modified;
+
+	SourceMap(BytesReference source) {
+		this.source = source;
+	}
+
+	// the source of the document, unchanged unless the map was modified;
+	// a modified map is written in the content type of the source
+	public synchronized BytesReference bytes() {
+		if (!modified)
+			return source;
+		try (var builder = type().contentBuilder()) {
+			return BytesReference.bytes(builder.map(full()));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// a copy over the same or the modified source, parsed on its own
+	SourceMap copy() {
+		return new SourceMap(bytes());
+	}
+
+	@Override
+	public synchronized Object get(Object key) {
+		if (map != null)
+			return handedOut(map.get(key));
+		if (!(key instanceof String name))
+			return null;
+		if (keys == null) {
+			keys = new HashMap<>();
+		} else if (keys.containsKey(name))
+			return handedOut(keys.get(name));
+		var value = parse(name);
+		keys.put(name, value);
+		return handedOut(value);
+	}
+
+	// nested maps and lists can be changed by the caller
+	private Object handedOut(Object value) {
+		if (value instanceof Map || value instanceof List) {
+			modified = true;
+		}
+		return value;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return full().containsKey(key);
+	}
+
+	@Override
+	public synchronized boolean isEmpty() {
+		if (map != null)
+			return map.isEmpty();
+		try (var parser = parser()) {
+			parser.nextToken();
+			return parser.nextToken() != Token.FIELD_NAME;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public int size() {
+		return full().size();
+	}
+
+	@Override
+	public synchronized Object put(String key, Object value) {
+		modified = true;
+		return full().put(key, value);
+	}
+
+	@Override
+	public synchronized Object remove(Object key) {
+		modified = true;
+		return full().remove(key);
+	}
+
+	// keySet, values, replaceAll, clear etc. all go through this view
+	@Override
+	public synchronized Set<Entry<String, Object>> entrySet() {
+		modified = true;
+		return full().entrySet();
+	}
+
+	// values that were already handed out by get replace the parsed ones, so
+	// that changes to them are kept
+	private synchronized Map<String, Object> full() {
+		if (map == null) {
+			map = XContentHelper.convertToMap(source, false, type()).v2();
+			if (keys != null) {
+				keys.forEach((key, value) -> {
+					if (map.containsKey(key)) {
+						map.put(key, value);
+					}
+				});
+			}
+			keys = null;
+		}
+		return map;
+	}
+
+	private Object parse(String key) {
+		try (var parser = parser()) {
+			if (parser.nextToken() != Token.START_OBJECT)
+				return null;
+			Token token;
+			while ((token = parser.nextToken()) == Token.FIELD_NAME) {
+				var name = parser.currentName();
+				token = parser.nextToken();
+				if (!name.equals(key)) {
+					parser.skipChildren();
+					continue;
+				}
+				return switch (token) {
+					case START_OBJECT -> parser.map();
+					case START_ARRAY -> parser.list();
+					case VALUE_NULL -> null;
+					default -> parser.objectText();
+				};
+			}
+			return null;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private XContentParser parser() throws IOException {
+		return XContentHelper.createParser(NamedXContentRegistry.EMPTY,
+				DeprecationHandler.THROW_UNSUPPORTED_OPERATION, source, type());
+	}
+
+	// sources are usually JSON, but documents indexed by other clients can
+	// be SMILE, CBOR or YAML
+	@SuppressWarnings("deprecation")
+	private MediaType type() {
+		if (type == null) {
+			type = MediaTypeRegistry.xContentType(source);
+		}
+		return type;
+	}
+
+}